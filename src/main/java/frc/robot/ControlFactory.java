@@ -4,8 +4,14 @@
 
 package frc.robot;
 
+import java.util.Set;
+
+import com.pathplanner.lib.auto.AutoBuilder;
+
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.Command.InterruptionBehavior;
@@ -14,8 +20,13 @@ import frc.robot.subsystem.Elevator;
 import frc.robot.subsystem.EndEffector;
 import frc.robot.subsystem.SystemLights;
 import frc.robot.subsystem.Elevator.Position;
+import frc.robot.subsystem.EndEffector.AlgaeServoPosition;
+import frc.robot.subsystem.SystemLights.Layer;
 import frc.robot.subsystem.SystemLights.PresetColor;
+import frc.robot.subsystem.SystemLights.Segment;
 import frc.robot.util.HealthStatus;
+import frc.robot.util.PathCache;
+import frc.robot.util.ReefTagSelector;
 
 /** Add your docs here. */
 public class ControlFactory {
@@ -24,17 +35,24 @@ public class ControlFactory {
     private final Elevator elevator;
     private final EndEffector endEffector;
     private final SystemLights systemLights;
+    private final Superstructure superstructure;
     private final Translation2d blueReef = new Translation2d(4.490, 4);
     private final Translation2d redReef = new Translation2d(13.05, 4);
-    private final double[] highAlgaeAprilTags = { 6, 8, 10, 17, 19, 21 };
-    private final double[] lowAlgaeAprilTags = { 7, 9, 11, 18, 20, 22 };
+    private final ReefTagSelector reefTagSelector;
+    private final PathCache pathCache;
+    private final int[] highAlgaeAprilTags = { 6, 8, 10, 17, 19, 21 };
+    private final int[] lowAlgaeAprilTags = { 7, 9, 11, 18, 20, 22 };
 
     public ControlFactory(CommandSwerveDrivetrain swerveDrivetrain, Elevator elevator, EndEffector endEffector,
-            SystemLights systemLights) {
+            SystemLights systemLights, Superstructure superstructure, ReefTagSelector reefTagSelector,
+            PathCache pathCache) {
         this.swerveDrivetrain = swerveDrivetrain;
         this.elevator = elevator;
         this.endEffector = endEffector;
         this.systemLights = systemLights;
+        this.superstructure = superstructure;
+        this.reefTagSelector = reefTagSelector;
+        this.pathCache = pathCache;
     }
 
     public Command lockElevator(double lockDurationInSeconds) {
@@ -47,38 +65,51 @@ public class ControlFactory {
 
     public Command dealgaeReefHighPosition() {
         return Commands.sequence(
-                elevator.cmdSetPosition(Elevator.Position.L4),
-                endEffector.cmdSetAlgaeIntakePostion(EndEffector.AlgaeServoPosition.DEPLOYED),
-                elevator.cmdSetPosition(Elevator.Position.L3_5));
+                superstructure.cmdGoTo(Position.L4, AlgaeServoPosition.DEPLOYED),
+                superstructure.cmdGoTo(Position.L3_5, AlgaeServoPosition.DEPLOYED));
     }
 
     public Command dealgaeReefHighPositionReverse(Position pos) {
         return Commands.sequence(
-                elevator.cmdSetPosition(Elevator.Position.L4),
-                endEffector.cmdSetAlgaeIntakePostion(EndEffector.AlgaeServoPosition.HOME),
-                elevator.cmdSetPosition(pos));
+                superstructure.cmdGoTo(Position.L4, AlgaeServoPosition.HOME),
+                superstructure.cmdGoTo(pos, AlgaeServoPosition.HOME));
     }
 
     public Command delagaeReefLowPosition() {
         return Commands.sequence(
-                elevator.cmdSetPosition(Elevator.Position.L3_5),
-                endEffector.cmdSetAlgaeIntakePostion(EndEffector.AlgaeServoPosition.DEPLOYED),
-                elevator.cmdSetPosition(Elevator.Position.L2_5));
+                superstructure.cmdGoTo(Position.L3_5, AlgaeServoPosition.DEPLOYED),
+                superstructure.cmdGoTo(Position.L2_5, AlgaeServoPosition.DEPLOYED));
     }
 
     public Command delagaeReefLowPositionReverse(Position pos) {
         return Commands.sequence(
-                elevator.cmdSetPosition(Elevator.Position.L3_5),
-                endEffector.cmdSetAlgaeIntakePostion(EndEffector.AlgaeServoPosition.HOME),
-                elevator.cmdSetPosition(pos));
+                superstructure.cmdGoTo(Position.L3_5, AlgaeServoPosition.HOME),
+                superstructure.cmdGoTo(pos, AlgaeServoPosition.HOME));
     }
 
     public boolean hasLowAlgae() {
-        return (idInArray(lowAlgaeAprilTags, LimelightHelpers.getFiducialID("limelight")));
+        return (idInArray(lowAlgaeAprilTags, reefTagSelector.getSelectedTagID()));
     }
 
     public boolean hasHighAlgae() {
-        return (idInArray(highAlgaeAprilTags, LimelightHelpers.getFiducialID("limelight")));
+        return (idInArray(highAlgaeAprilTags, reefTagSelector.getSelectedTagID()));
+    }
+
+    /** Drive a cached path to square up on the selected reef face. */
+    public Command driveToSelectedReefFace() {
+        return Commands.defer(() -> pathCache
+                .getPath(swerveDrivetrain.getState().Pose, swerveDrivetrain.getState().Speeds,
+                        reefTagSelector.getSelectedTagID())
+                .map(AutoBuilder::followPath)
+                .orElse(Commands.none()), Set.of(swerveDrivetrain));
+    }
+
+    /** Drive a cached path to the closer coral station. */
+    public Command driveToCoralStation() {
+        return Commands.defer(() -> pathCache
+                .getPathToCoralStation(swerveDrivetrain.getState().Pose, swerveDrivetrain.getState().Speeds)
+                .map(AutoBuilder::followPath)
+                .orElse(Commands.none()), Set.of(swerveDrivetrain));
     }
 
     public Rotation2d determineHeadingToReef() {
@@ -95,20 +126,28 @@ public class ControlFactory {
         }
     }
 
-    public Command displaySubsystemErrorState() {
-        return Commands.run(
-                () -> {
-                    if (elevator.getHealthStatus() == HealthStatus.ERROR) {
-                        systemLights.setLEDs(PresetColor.PURPLE);
-                    } else {
-                        systemLights.setLEDs(PresetColor.KELLY_GREEN);
-                    }
-                }, systemLights);
+    /**
+     * Status lights, highest layer wins. None of these take the lights
+     * subsystem, so they never interrupt a command using it.
+     */
+    public void addStatusLights() {
+        systemLights.addStatus(Layer.HEALTH_ERROR, Segment.ALL, PresetColor.PURPLE,
+                () -> DriverStation.isDisabled() && elevator.getHealthStatus() == HealthStatus.ERROR);
+        systemLights.addStatus(Layer.GAME_PIECE, Segment.STRIP_LOWER, PresetColor.WHITE,
+                () -> endEffector.hasCoral());
+        systemLights.addStatus(Layer.GAME_PIECE, Segment.STRIP_LOWER, PresetColor.TEAL,
+                () -> endEffector.hasAlgae());
+        systemLights.addStatus(Layer.ALIGNMENT_READY, Segment.STRIP, PresetColor.GREEN,
+                () -> reefTagSelector.isSelectedTagInView() && elevator.isNearCoralScoringPosition());
+        systemLights.addStatus(Layer.ALLIANCE, Segment.ONBOARD, PresetColor.RED,
+                () -> DriverStation.getAlliance().orElse(null) == Alliance.Red);
+        systemLights.addStatus(Layer.ALLIANCE, Segment.ONBOARD, PresetColor.BLUE,
+                () -> DriverStation.getAlliance().orElse(null) == Alliance.Blue);
     }
 
-    private boolean idInArray(double[] arr, double id) {
-        for (double i : arr) {
-            if (Double.compare(i, id) == 0)
+    private boolean idInArray(int[] arr, int id) {
+        for (int i : arr) {
+            if (i == id)
                 return true;
         }
         return false;
@@ -118,9 +157,7 @@ public class ControlFactory {
         return Commands.sequence(
                 endEffector.cmdStopAlgaeMotor(),
                 endEffector.cmdStopCoralMotor(),
-                endEffector.cmdSetAlgaeIntakePostion(EndEffector.AlgaeServoPosition.HOME),
-                Commands.waitSeconds(0.5),
-                elevator.cmdSetPosition(pos));
+                superstructure.cmdGoTo(pos, AlgaeServoPosition.HOME));
 
     }
 
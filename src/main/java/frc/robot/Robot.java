@@ -4,6 +4,8 @@
 
 package frc.robot;
 
+import java.util.List;
+
 import com.ctre.phoenix6.Utils;
 
 import edu.wpi.first.epilogue.Epilogue;
@@ -12,12 +14,16 @@ import edu.wpi.first.math.VecBuilder;
 import edu.wpi.first.math.util.Units;
 import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.sim.SimulatedMechanism;
 
 @Logged
 public class Robot extends TimedRobot {
+  private static final double kSimStepSeconds = 0.005;
+
   private Command m_autonomousCommand;
 
   @Logged(name = "RobotContainer")
@@ -28,22 +34,41 @@ public class Robot extends TimedRobot {
     DriverStation.startDataLog(DataLogManager.getLog());
     Epilogue.bind(this);
     DriverStation.silenceJoystickConnectionWarning(true);
+
+    if (isSimulation()) {
+      // Step physics faster than the robot loop so PID gains behave more reasonably
+      List<SimulatedMechanism> simulatedMechanisms = m_robotContainer.getSimulatedMechanisms();
+      addPeriodic(() -> {
+        for (SimulatedMechanism mechanism : simulatedMechanisms) {
+          mechanism.updateSimState(kSimStepSeconds, RobotController.getBatteryVoltage());
+        }
+      }, kSimStepSeconds);
+    }
   }
 
   @Override
   public void robotPeriodic() {
+    m_robotContainer.updateReefTagSelection();
     CommandScheduler.getInstance().run();
     m_robotContainer.determineMaxSpeed();
   }
 
   @Override
-  public void disabledInit() {}
+  public void disabledInit() {
+    m_robotContainer.resetVisionPoseSeeding();
+    m_robotContainer.stopVisionRecording();
+  }
 
   @Override
-  public void disabledPeriodic() {}
+  public void disabledPeriodic() {
+    m_robotContainer.updateVisionPoseSeeding();
+    m_robotContainer.updateAutoPreloading();
+  }
 
   @Override
-  public void disabledExit() {}
+  public void disabledExit() {
+    m_robotContainer.startVisionRecording();
+  }
 
   @Override
   public void autonomousInit() {
@@ -6,14 +6,13 @@ package frc.robot;
 
 import static edu.wpi.first.units.Units.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.swerve.SwerveModule.DriveRequestType;
-import com.ctre.phoenix6.swerve.SwerveRequest.FieldCentricFacingAngle;
-import com.ctre.phoenix6.swerve.SwerveRequest;
-import com.pathplanner.lib.commands.PathPlannerAuto;
 
 import edu.wpi.first.epilogue.Logged;
-import edu.wpi.first.wpilibj.DataLogManager;
-import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
@@ -23,7 +22,11 @@ import edu.wpi.first.wpilibj2.command.button.CommandXboxController;
 import edu.wpi.first.wpilibj2.command.button.Trigger;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine.Direction;
 import frc.robot.commands.SeekAprilTag;
+import frc.robot.commands.SwerveSetpointRequest;
 import frc.robot.generated.TunerConstants;
+import frc.robot.sim.DrivetrainGroundTruth;
+import frc.robot.sim.LimelightSimulation;
+import frc.robot.sim.SimulatedMechanism;
 import frc.robot.subsystem.CommandSwerveDrivetrain;
 import frc.robot.subsystem.Elevator;
 import frc.robot.subsystem.EndEffector;
@@ -31,6 +34,12 @@ import frc.robot.subsystem.SystemLights;
 import frc.robot.subsystem.Elevator.Position;
 import frc.robot.subsystem.EndEffector.AlgaeServoPosition;
 import frc.robot.subsystem.EndEffector.HeadPosition;
+import frc.robot.util.AntiTipLimiter;
+import frc.robot.util.AutoPreloader;
+import frc.robot.util.PathCache;
+import frc.robot.util.ReefTagSelector;
+import frc.robot.util.VisionPoseSeeder;
+import frc.robot.util.VisionRecorder;
 
 public class RobotContainer {
     // kSpeedAt12Volts desired top speed
@@ -39,21 +48,40 @@ public class RobotContainer {
     // 3/4 of a rotation per second, max angular velocity
     private double MaxAngularRate = RotationsPerSecond.of(0.75).in(RadiansPerSecond);
 
-    private final SwerveRequest.FieldCentric drive = new SwerveRequest.FieldCentric()
+    public final CommandSwerveDrivetrain drivetrain = TunerConstants.createDrivetrain();
+
+    private final SwerveSetpointRequest drive = new SwerveSetpointRequest(drivetrain.getRobotConfig())
             .withDeadband(MaxSpeed * 0.1).withRotationalDeadband(MaxAngularRate * 0.1)
             .withDriveRequestType(DriveRequestType.OpenLoopVoltage);
 
-    private final SwerveRequest.FieldCentricFacingAngle driveFacingAngle = new FieldCentricFacingAngle()
+    private final SwerveSetpointRequest driveFacingAngle = new SwerveSetpointRequest(drivetrain.getRobotConfig())
             .withDeadband(MaxSpeed * 0.1)
             .withDriveRequestType(DriveRequestType.OpenLoopVoltage)
             .withHeadingPID(12, 0, 0);
 
-    private final SeekAprilTag seekAprilTag = new SeekAprilTag()
-            .withDriveRequestType(DriveRequestType.OpenLoopVoltage);
+    @Logged(name = "Anti tip limiter")
+    private final AntiTipLimiter antiTipLimiter = new AntiTipLimiter(drivetrain.getRobotConfig(),
+            TunerConstants.kSpeedAt12Volts.in(MetersPerSecond));
+
+    @Logged(name = "Reef tag selector")
+    private final ReefTagSelector reefTagSelector = new ReefTagSelector("limelight");
+
+    @Logged(name = "Vision pose seeder")
+    private final VisionPoseSeeder visionPoseSeeder = new VisionPoseSeeder("limelight");
+
+    @Logged(name = "Path cache")
+    private final PathCache pathCache = new PathCache();
+
+    private final SeekAprilTag seekAprilTag = new SeekAprilTag(drivetrain.getRobotConfig())
+            .withDriveRequestType(DriveRequestType.OpenLoopVoltage)
+            .withTagSelector(reefTagSelector);
 
     private final Telemetry logger = new Telemetry();
     private final SendableChooser<Command> autoChooser = new SendableChooser<>();
 
+    @Logged(name = "Auto preloader")
+    private AutoPreloader autoPreloader;
+
     private final CommandXboxController joystick = new CommandXboxController(0);
     private CommandPS4Controller devJoystick;
 
@@ -66,49 +94,129 @@ public class RobotContainer {
     @Logged(name = "System lights")
     public final SystemLights systemLights = new SystemLights();
 
-    public final CommandSwerveDrivetrain drivetrain = TunerConstants.createDrivetrain();
-    private final ControlFactory controlFactory = new ControlFactory(drivetrain, elevator, endEffector, systemLights);
+    @Logged(name = "Superstructure")
+    public final Superstructure superstructure = new Superstructure(elevator, endEffector);
+
+    private final ControlFactory controlFactory = new ControlFactory(drivetrain, elevator, endEffector, systemLights,
+            superstructure, reefTagSelector, pathCache);
 
     private final Trigger hasAlgae = new Trigger(() -> endEffector.hasAlgae());
     private final Trigger hasCoral = new Trigger(() -> endEffector.hasCoral());
+    private final Trigger isEjectingCoral = new Trigger(() -> endEffector.isEjectingCoral());
     private final Trigger reefHasHighAlgae = new Trigger(() -> controlFactory.hasHighAlgae());
     private final Trigger reefHasLowAlgae = new Trigger(() -> controlFactory.hasLowAlgae());
     private final Trigger isNearCoralPosition = new Trigger(() -> elevator.isNearCoralScoringPosition());
     private final Trigger isNearAlgaePosition = new Trigger(() -> elevator.isNearReefAlgaePosition());
     private final Trigger isNearAlgaeContainmentPositon = new Trigger(() -> elevator.isNearAlgaeContainmentPosition());
     private final Trigger hasCoralInShute = new Trigger(() -> elevator.hasCoralInChute());
-    private final Trigger isDisabled = new Trigger(() -> DriverStation.isDisabled());
 
     private final boolean devController = true;
     private final boolean driveEnabled = false;
     private final boolean automationEnabled = true;
+    private final boolean visionRecordingEnabled = false;
+
+    // Written on the main loop, read from the odometry thread
+    private volatile VisionRecorder visionRecorder = null;
 
     public RobotContainer() {
         configureBindings();
         configureSmartDashboardBindings();
         configureAutoCommands();
-        drivetrain.registerTelemetry(logger::telemeterize);
+
+        drivetrain.registerTelemetry(state -> {
+            logger.telemeterize(state);
+            VisionRecorder recorder = visionRecorder;
+            if (recorder != null) {
+                recorder.recordOdometry(state);
+            }
+        });
     }
 
     public Command getAutonomousCommand() {
         return autoChooser.getSelected();
     }
 
-    public void determineMaxSpeed() {
-        if (elevator.isAbovePosition(Position.L3)) {
-            MaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond) / 2;
-        } else if (elevator.isAbovePosition(Position.L1)) {
-            MaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond) / 1.5;
-        } else {
-            MaxSpeed = TunerConstants.kSpeedAt12Volts.in(MetersPerSecond);
+    public void updateAutoPreloading() {
+        autoPreloader.periodic();
+    }
+
+    public void updateReefTagSelection() {
+        reefTagSelector.update(drivetrain.getState().Pose.getRotation());
+    }
+
+    /**
+     * While disabled, keep the pose seeded from averaged vision so auto starts
+     * from where the robot actually is. A seeded pose also stands in for the
+     * start pose of autos that reset odometry.
+     */
+    public void updateVisionPoseSeeding() {
+        visionPoseSeeder.update(drivetrain.getState().Speeds).ifPresent(drivetrain::seedPoseFromVision);
+    }
+
+    public void resetVisionPoseSeeding() {
+        visionPoseSeeder.reset();
+        drivetrain.clearVisionSeed();
+    }
+
+    /**
+     * Record vision and odometry to a new file for each enabled period, if
+     * recording is turned on.
+     */
+    public void startVisionRecording() {
+        if (!visionRecordingEnabled || visionRecorder != null) {
+            return;
         }
+        visionRecorder = VisionRecorder.start(drivetrain.getModuleLocations()).orElse(null);
+        drivetrain.setVisionRecorder(visionRecorder);
+    }
+
+    public void stopVisionRecording() {
+        if (visionRecorder == null) {
+            return;
+        }
+        drivetrain.setVisionRecorder(null);
+        visionRecorder.close();
+        visionRecorder = null;
+    }
+
+    public void determineMaxSpeed() {
+        antiTipLimiter.update(
+                elevator.getLeftMotorPosition(),
+                drivetrain.getPigeon2().getPitch().getValueAsDouble(),
+                drivetrain.getPigeon2().getRoll().getValueAsDouble());
+        MaxSpeed = antiTipLimiter.getMaxSpeed();
+
+        double maxAcceleration = antiTipLimiter.getMaxAcceleration();
+        drive.withMaxTranslationalAcceleration(maxAcceleration);
+        driveFacingAngle.withMaxTranslationalAcceleration(maxAcceleration);
+        seekAprilTag.withMaxTranslationalAcceleration(maxAcceleration);
+    }
+
+    /**
+     * Mechanisms to step from the robot loop in simulation.
+     */
+    public List<SimulatedMechanism> getSimulatedMechanisms() {
+        List<SimulatedMechanism> mechanisms = new ArrayList<>();
+        mechanisms.add(elevator.createSimulation());
+        mechanisms.add(endEffector.createSimulation());
+
+        DrivetrainGroundTruth groundTruth = new DrivetrainGroundTruth(drivetrain);
+        mechanisms.add(groundTruth);
+        mechanisms.add(new LimelightSimulation("limelight", groundTruth::getPose));
+        mechanisms.add((dt, supplyVoltage) -> {
+            VisionRecorder recorder = visionRecorder;
+            if (recorder != null) {
+                recorder.recordGroundTruth(Utils.getCurrentTimeSeconds(), groundTruth.getPose());
+            }
+        });
+        return mechanisms;
     }
 
     private void configureBindings() {
         joystick.rightBumper().onTrue(endEffector.cmdSetHeadRotation(EndEffector.HeadPosition.CENTER_RIGHT));
         joystick.leftBumper().onTrue(endEffector.cmdSetHeadRotation(EndEffector.HeadPosition.CENTER_LEFT));
 
-        joystick.rightTrigger().and(isNearCoralPosition).onTrue(endEffector.cmdAddCoralRotations(15));
+        joystick.rightTrigger().and(isNearCoralPosition).onTrue(endEffector.cmdEjectCoral());
         joystick.rightTrigger().and(isNearAlgaePosition).whileTrue(endEffector.cmdSetAlgaeDutyCycleOut(-0.5));
         joystick.rightTrigger().and(isNearAlgaeContainmentPositon).whileTrue(endEffector.cmdSetAlgaeDutyCycleOut(0.5));
 
@@ -125,7 +233,7 @@ public class RobotContainer {
 
         joystick.start().onTrue(drivetrain.runOnce(() -> drivetrain.seedFieldCentric()));
 
-        isDisabled.whileTrue(controlFactory.displaySubsystemErrorState());
+        controlFactory.addStatusLights();
         
         if (driveEnabled) {
             drivetrain.setDefaultCommand(
@@ -146,11 +254,15 @@ public class RobotContainer {
                             .withMaxAngularRate(MaxAngularRate)
                             .withRobotPose(drivetrain.getState().Pose)));
 
+            joystick.x().whileTrue(controlFactory.driveToSelectedReefFace());
+            joystick.y().whileTrue(controlFactory.driveToCoralStation());
         }
 
         if (automationEnabled) {
-            hasCoral.negate().onTrue(endEffector.cmdSetHeadRotation(EndEffector.HeadPosition.CENTER));
-            hasCoral.onTrue(endEffector.cmdAddCoralRotations(5)
+            // Wait for the eject overrun to finish before taking the end effector
+            hasCoral.negate().and(isEjectingCoral.negate())
+                    .onTrue(endEffector.cmdSetHeadRotation(EndEffector.HeadPosition.CENTER));
+            hasCoral.onTrue(endEffector.cmdIntakeCoral()
                     .andThen(endEffector.cmdSetHeadRotation(EndEffector.HeadPosition.CENTER_LEFT)));
             // TODO: Revist logic after testing, lock the elevator for 2 seconds when
             // tripped instead
@@ -171,7 +283,7 @@ public class RobotContainer {
             devJoystick.R3().onTrue(endEffector.cmdSetAlgaeIntakePostion(EndEffector.AlgaeServoPosition.MIDDLE));
 
             // Scoring options
-            devJoystick.R1().onTrue(endEffector.cmdAddCoralRotations(15));
+            devJoystick.R1().onTrue(endEffector.cmdEjectCoral());
             devJoystick.R2().whileTrue(endEffector.cmdSetAlgaeDutyCycleOut(0.5));
             // Placeholder for climber -> devJoystick.L1().onTrue();
             devJoystick.L2().whileTrue(endEffector.cmdSetAlgaeDutyCycleOut(-0.5));
@@ -193,6 +305,7 @@ public class RobotContainer {
             devJoystick.povUp().onTrue(elevator.cmdSetPosition(Elevator.Position.L4));
             devJoystick.circle().onTrue(elevator.cmdSetPosition(Elevator.Position.CORAL_STATION));
             devJoystick.square().onTrue(elevator.cmdSetPosition(Elevator.Position.STARTING_CONFIGURATION));
+            devJoystick.options().onTrue(elevator.cmdHome());
         }
     }
 
@@ -203,6 +316,14 @@ public class RobotContainer {
         SmartDashboard.putData(drivetrain.sysIdQuasistatic(Direction.kForward).withName("Quasistatic forward"));
         SmartDashboard.putData(drivetrain.sysIdQuasistatic(Direction.kReverse).withName("Quasistatic reverse"));
 
+        SmartDashboard.putData(elevator.cmdHome().withName("Elevator, home"));
+
+        // Sys ID for the elevator
+        SmartDashboard.putData(elevator.sysIdDynamic(Direction.kForward).withName("Elevator, dynamic forward"));
+        SmartDashboard.putData(elevator.sysIdDynamic(Direction.kReverse).withName("Elevator, dynamic reverse"));
+        SmartDashboard.putData(elevator.sysIdQuasistatic(Direction.kForward).withName("Elevator, quasistatic forward"));
+        SmartDashboard.putData(elevator.sysIdQuasistatic(Direction.kReverse).withName("Elevator, quasistatic reverse"));
+
         // Servo replacement commands
         SmartDashboard.putData(endEffector.cmdBumpHead(true).withName("Head, bump right"));
         SmartDashboard.putData(endEffector.cmdBumpHead(false).withName("Head, bump left"));
@@ -218,24 +339,15 @@ public class RobotContainer {
                 endEffector.cmdSetAlgaeIntakePostion(AlgaeServoPosition.MIDDLE).withName("Algae intake, middle"));
     }
 
-    private void addPathAuto(String name, String pathName) {
-        try {
-            autoChooser.addOption(name, new PathPlannerAuto(pathName));
-        } catch (Exception e) {
-            // Exceptions are now caught in the PathPlannerAuto constructor and this should
-            // never run. Leaving it in place to catch any edge cases.
-            DataLogManager.log(String.format("GatorBot: Not able to build auto routines! %s", e.getMessage()));
-        }
-    }
-
     private void configureAutoCommands() {
         /*
          * Do nothing as default is a human safety condition, this should always be the
          * default
          */
         autoChooser.setDefaultOption("Do nothing", new WaitCommand(15));
-        addPathAuto("EasyAuto", "EasyAuto");
         SmartDashboard.putData("Auto Chooser", autoChooser);
+        // Every auto under deploy/pathplanner is added as it loads
+        autoPreloader = new AutoPreloader(autoChooser, drivetrain);
     }
 
 }
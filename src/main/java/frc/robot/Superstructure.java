@@ -0,0 +1,287 @@
+package frc.robot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import edu.wpi.first.epilogue.Logged;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.subsystem.Elevator;
+import frc.robot.subsystem.Elevator.Position;
+import frc.robot.subsystem.EndEffector;
+import frc.robot.subsystem.EndEffector.AlgaeServoPosition;
+
+/**
+ * State machine over the elevator position and algae arm position. Every pair
+ * of states is connected through a transition graph that is solved once at
+ * construction for the shortest predicted time, using the elevator motion
+ * profile and the algae arm servo model as edge costs. Elevator and arm motion
+ * run in parallel wherever the interlocks allow it instead of always homing
+ * the arm and waiting before every move.
+ * <p>
+ * Interlocks:
+ * <ul>
+ * <li>The arm may only be out of HOME with the elevator at or above L2_5.</li>
+ * <li>The arm may only deploy with the elevator at or above L3_5, and only
+ * while the elevator is stopped.</li>
+ * <li>The arm may home while the elevator moves, as long as the move ends at
+ * or above L2_5.</li>
+ * </ul>
+ * The arm servo gives no feedback, so its state comes from the servo motion
+ * model, and a transition waits for an arm that is still travelling to arrive
+ * before planning from it.
+ */
+public class Superstructure {
+    // Fixed wait the old sequential moves took after homing the arm
+    private static final double kSequentialArmSettleSeconds = 0.5;
+
+    private static final Position[] positions = Position.values();
+    private static final AlgaeServoPosition[] servoPositions = AlgaeServoPosition.values();
+    private static final int nodeCount = positions.length * servoPositions.length;
+
+    private enum EdgeType {
+        NONE,
+        MOVE,
+        SERVO,
+        MOVE_AND_HOME
+    }
+
+    private final Elevator elevator;
+    private final EndEffector endEffector;
+
+    private final EdgeType[][] edgeTypes = new EdgeType[nodeCount][nodeCount];
+    private final double[][] transitionCost = new double[nodeCount][nodeCount];
+    private final int[][] nextNode = new int[nodeCount][nodeCount];
+
+    private double predictedTransitionSeconds = 0;
+    private double sequentialTransitionSeconds = 0;
+    private double lastTransitionSeconds = 0;
+    private int transitionCount = 0;
+    private double transitionStartTime = 0;
+    // False when the last goal was already reached or could not be reached
+    private boolean transitionPlanned = false;
+
+    public Superstructure(Elevator elevator, EndEffector endEffector) {
+        this.elevator = elevator;
+        this.endEffector = endEffector;
+        buildTransitionGraph();
+    }
+
+    /**
+     * Move the elevator and algae arm to a state along the fastest allowed path
+     * from wherever they are when the command starts.
+     */
+    public Command cmdGoTo(Position position, AlgaeServoPosition servoPosition) {
+        int goal = node(position, servoPosition);
+        return Commands.sequence(
+                Commands.runOnce(() -> transitionStartTime = Timer.getFPGATimestamp()),
+                Commands.waitUntil(() -> endEffector.isAlgaeIntakeArmAtTarget()),
+                Commands.defer(() -> buildTransition(currentNode(), goal), Set.of(elevator, endEffector)),
+                Commands.runOnce(() -> {
+                    if (transitionPlanned) {
+                        lastTransitionSeconds = Timer.getFPGATimestamp() - transitionStartTime;
+                        transitionCount++;
+                    }
+                }));
+    }
+
+    /**
+     * Predicted time to get from one state to another, infinite if there is no
+     * allowed path.
+     */
+    public double getPredictedTransitionTime(Position fromPosition, AlgaeServoPosition fromServo,
+            Position toPosition, AlgaeServoPosition toServo) {
+        return transitionCost[node(fromPosition, fromServo)][node(toPosition, toServo)];
+    }
+
+    @Logged(name = "Predicted transition seconds")
+    public double getPredictedTransitionSeconds() {
+        return predictedTransitionSeconds;
+    }
+
+    /**
+     * Predicted time of the last transition done the old way: home the arm and
+     * wait, move the elevator, then move the arm. Compare with the measured
+     * time to see what planning the transitions saves.
+     */
+    @Logged(name = "Sequential transition seconds")
+    public double getSequentialTransitionSeconds() {
+        return sequentialTransitionSeconds;
+    }
+
+    @Logged(name = "Transition count")
+    public int getTransitionCount() {
+        return transitionCount;
+    }
+
+    @Logged(name = "Last transition seconds")
+    public double getLastTransitionSeconds() {
+        return lastTransitionSeconds;
+    }
+
+    private Command buildTransition(int start, int goal) {
+        transitionPlanned = false;
+        if (Double.isInfinite(transitionCost[start][goal])) {
+            DriverStation.reportWarning("Superstructure has no allowed path from " + positionOf(start) + "/"
+                    + servoOf(start) + " to " + positionOf(goal) + "/" + servoOf(goal), false);
+            return Commands.none();
+        }
+
+        List<Command> steps = new ArrayList<>();
+
+        int current = start;
+        while (current != goal && nextNode[current][goal] >= 0) {
+            int next = nextNode[current][goal];
+            steps.add(edgeCommand(current, next));
+            current = next;
+        }
+        if (steps.isEmpty()) {
+            return Commands.none();
+        }
+
+        transitionPlanned = true;
+        predictedTransitionSeconds = transitionCost[start][goal];
+        sequentialTransitionSeconds = estimateSequentialTime(start, goal);
+        return Commands.sequence(steps.toArray(new Command[0]));
+    }
+
+    private Command edgeCommand(int from, int to) {
+        Position toPosition = positionOf(to);
+        AlgaeServoPosition toServo = servoOf(to);
+
+        switch (edgeTypes[from][to]) {
+            case MOVE:
+                // Settles before ending, an arm deploy after this needs the elevator stopped
+                return elevator.cmdSetPosition(toPosition);
+            case SERVO:
+                return servoCommand(toServo);
+            case MOVE_AND_HOME:
+                return Commands.parallel(elevator.cmdSetPosition(toPosition), servoCommand(toServo));
+            default:
+                return Commands.none();
+        }
+    }
+
+    private Command servoCommand(AlgaeServoPosition servoPosition) {
+        return endEffector.cmdSetAlgaeIntakePostion(servoPosition);
+    }
+
+    private void buildTransitionGraph() {
+        for (int from = 0; from < nodeCount; from++) {
+            for (int to = 0; to < nodeCount; to++) {
+                edgeTypes[from][to] = EdgeType.NONE;
+                transitionCost[from][to] = from == to ? 0 : Double.POSITIVE_INFINITY;
+                nextNode[from][to] = from == to ? to : -1;
+            }
+        }
+
+        for (int from = 0; from < nodeCount; from++) {
+            for (int to = 0; to < nodeCount; to++) {
+                if (from != to) {
+                    addEdge(from, to);
+                }
+            }
+        }
+
+        // Floyd-Warshall, the graph is small and only solved once
+        for (int via = 0; via < nodeCount; via++) {
+            for (int from = 0; from < nodeCount; from++) {
+                for (int to = 0; to < nodeCount; to++) {
+                    double throughVia = transitionCost[from][via] + transitionCost[via][to];
+                    if (throughVia < transitionCost[from][to]) {
+                        transitionCost[from][to] = throughVia;
+                        nextNode[from][to] = nextNode[from][via];
+                    }
+                }
+            }
+        }
+    }
+
+    private void addEdge(int from, int to) {
+        Position fromPosition = positionOf(from);
+        Position toPosition = positionOf(to);
+        AlgaeServoPosition fromServo = servoOf(from);
+        AlgaeServoPosition toServo = servoOf(to);
+        double moveTime = Elevator.estimateMoveTime(fromPosition, toPosition);
+        double servoTime = endEffector.estimateAlgaeIntakeArmTravelTime(fromServo, toServo);
+
+        EdgeType type = EdgeType.NONE;
+        double cost = Double.POSITIVE_INFINITY;
+
+        if (fromServo == toServo) {
+            if (fromServo == AlgaeServoPosition.HOME || (isArmAllowedOut(fromPosition) && isArmAllowedOut(toPosition))) {
+                type = EdgeType.MOVE;
+                cost = moveTime;
+            }
+        } else if (fromPosition == toPosition) {
+            if (toServo == AlgaeServoPosition.HOME || isArmAllowedToDeploy(fromPosition)) {
+                type = EdgeType.SERVO;
+                cost = servoTime;
+            }
+        } else if (toServo == AlgaeServoPosition.HOME && isArmAllowedOut(toPosition)) {
+            type = EdgeType.MOVE_AND_HOME;
+            cost = Math.max(moveTime, servoTime);
+        }
+
+        edgeTypes[from][to] = type;
+        transitionCost[from][to] = cost;
+        if (type != EdgeType.NONE) {
+            nextNode[from][to] = to;
+        }
+    }
+
+    private double estimateSequentialTime(int start, int goal) {
+        if (start == goal) {
+            return 0;
+        }
+        AlgaeServoPosition fromServo = servoOf(start);
+        AlgaeServoPosition toServo = servoOf(goal);
+        return endEffector.estimateAlgaeIntakeArmTravelTime(fromServo, AlgaeServoPosition.HOME)
+                + kSequentialArmSettleSeconds
+                + Elevator.estimateMoveTime(positionOf(start), positionOf(goal))
+                + endEffector.estimateAlgaeIntakeArmTravelTime(AlgaeServoPosition.HOME, toServo);
+    }
+
+    private static boolean isArmAllowedOut(Position position) {
+        return position.rotations >= Position.L2_5.rotations;
+    }
+
+    private static boolean isArmAllowedToDeploy(Position position) {
+        return position.rotations >= Position.L3_5.rotations;
+    }
+
+    private int currentNode() {
+        double elevatorPosition = elevator.getLeftMotorPosition();
+        Position nearestPosition = positions[0];
+        for (Position position : positions) {
+            if (Math.abs(position.rotations - elevatorPosition) < Math.abs(nearestPosition.rotations - elevatorPosition)) {
+                nearestPosition = position;
+            }
+        }
+
+        double armPosition = endEffector.getAlgaeIntakeArmEstimatedPosition();
+        AlgaeServoPosition nearestServo = servoPositions[0];
+        for (AlgaeServoPosition servoPosition : servoPositions) {
+            if (Math.abs(servoPosition.value - armPosition) < Math.abs(nearestServo.value - armPosition)) {
+                nearestServo = servoPosition;
+            }
+        }
+
+        return node(nearestPosition, nearestServo);
+    }
+
+    private static int node(Position position, AlgaeServoPosition servoPosition) {
+        return position.ordinal() * servoPositions.length + servoPosition.ordinal();
+    }
+
+    private static Position positionOf(int node) {
+        return positions[node / servoPositions.length];
+    }
+
+    private static AlgaeServoPosition servoOf(int node) {
+        return servoPositions[node % servoPositions.length];
+    }
+}
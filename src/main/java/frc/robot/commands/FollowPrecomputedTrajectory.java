@@ -0,0 +1,68 @@
+package frc.robot.commands;
+
+import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+import com.pathplanner.lib.util.DriveFeedforwards;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.Command;
+import frc.robot.subsystem.CommandSwerveDrivetrain;
+import frc.robot.util.PrecomputedTrajectory;
+
+/**
+ * Follows a {@link PrecomputedTrajectory} with the same controller and output
+ * as PathPlanner's path following, sampling the stored states instead of
+ * generating a trajectory when the command starts. Flipped for the red
+ * alliance like any other path.
+ */
+public class FollowPrecomputedTrajectory extends Command {
+    private final PrecomputedTrajectory trajectory;
+    private final CommandSwerveDrivetrain drivetrain;
+    private final PPHolonomicDriveController controller = CommandSwerveDrivetrain.createPathController();
+    private final Timer timer = new Timer();
+    private final int moduleCount;
+    private boolean flip = false;
+
+    public FollowPrecomputedTrajectory(PrecomputedTrajectory trajectory, CommandSwerveDrivetrain drivetrain) {
+        this.trajectory = trajectory;
+        this.drivetrain = drivetrain;
+        this.moduleCount = drivetrain.getModules().length;
+        addRequirements(drivetrain);
+    }
+
+    @Override
+    public void initialize() {
+        flip = DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red;
+        var state = drivetrain.getState();
+        controller.reset(state.Pose, ChassisSpeeds.fromRobotRelativeSpeeds(state.Speeds, state.Pose.getRotation()));
+        timer.restart();
+    }
+
+    @Override
+    public void execute() {
+        PathPlannerTrajectoryState target = trajectory.sample(timer.get());
+        if (flip) {
+            target = target.flip();
+        }
+        Pose2d pose = drivetrain.getState().Pose;
+        drivetrain.driveRobotRelative(controller.calculateRobotRelativeSpeeds(pose, target), target.feedforwards);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return timer.hasElapsed(trajectory.getTotalTimeSeconds());
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        timer.stop();
+        // Keep rolling into the next path if this one ends at speed
+        if (interrupted || trajectory.sample(trajectory.getTotalTimeSeconds()).linearVelocity < 0.1) {
+            drivetrain.driveRobotRelative(new ChassisSpeeds(), DriveFeedforwards.zeros(moduleCount));
+        }
+    }
+}
@@ -3,37 +3,40 @@ package frc.robot.commands;
 import com.ctre.phoenix6.StatusCode;
 import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveControlParameters;
 import com.ctre.phoenix6.swerve.SwerveModule;
-import com.ctre.phoenix6.swerve.SwerveRequest.NativeSwerveRequest;
-import com.ctre.phoenix6.swerve.jni.SwerveJNI;
+import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.pathplanner.lib.config.RobotConfig;
+
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
-import edu.wpi.first.math.geometry.Translation2d;
 import frc.robot.LimelightHelpers;
+import frc.robot.util.ReefTagSelector;
 
-public class SeekAprilTag implements NativeSwerveRequest {
+public class SeekAprilTag implements SwerveRequest {
     // Default Robot Centric drive variables
     public double VelocityX = 0;
     private double VelocityY = 0;
     private double RotationalRate = 0;
     private double Deadband = 0;
     private double RotationalDeadband = 0;
-    private Translation2d CenterOfRotation = new Translation2d();
     private SwerveModule.DriveRequestType DriveRequestType = SwerveModule.DriveRequestType.OpenLoopVoltage;
-    private SwerveModule.SteerRequestType SteerRequestType = SwerveModule.SteerRequestType.Position;
-    private boolean DesaturateWheelSpeeds = true;
 
     // Custom attributes
     private double maxSpeed = 0;
     private double maxAngularRate = 0;
     private Pose2d robotPose2d = new Pose2d();
     private double targetAngle = 0;
-    private double aprilTagID = 0;
+    private int aprilTagID = ReefTagSelector.NO_TAG;
     private Pose3d aptilTagPose3d = new Pose3d();
+    private double tagForwardDistance = 0;
+    private double tagLateralDistance = 0;
+    private ReefTagSelector tagSelector;
     private PIDController headingController = new PIDController(7, 0, 0);
     private PIDController translationController = new PIDController(10, 0, 0);
+    private final SwerveSetpointRequest setpointRequest;
 
-    public SeekAprilTag() {
+    public SeekAprilTag(RobotConfig config) {
+        setpointRequest = new SwerveSetpointRequest(config).withFieldCentric(false);
     }
 
     public SeekAprilTag withDriveRequestType(SwerveModule.DriveRequestType newDriveRequestType) {
@@ -41,11 +44,6 @@ public class SeekAprilTag implements NativeSwerveRequest {
         return this;
     }
 
-    public SeekAprilTag withSteerRequestType(SwerveModule.SteerRequestType newSteerRequestType) {
-        this.SteerRequestType = newSteerRequestType;
-        return this;
-    }
-
     public SeekAprilTag withMaxSpeed(double maxSpeed) {
         this.maxSpeed = maxSpeed;
         Deadband = maxSpeed * 0.1;
@@ -57,6 +55,16 @@ public class SeekAprilTag implements NativeSwerveRequest {
         return this;
     }
 
+    public SeekAprilTag withMaxTranslationalAcceleration(double maxTranslationalAcceleration) {
+        setpointRequest.withMaxTranslationalAcceleration(maxTranslationalAcceleration);
+        return this;
+    }
+
+    public SeekAprilTag withTagSelector(ReefTagSelector tagSelector) {
+        this.tagSelector = tagSelector;
+        return this;
+    }
+
     public SeekAprilTag withMaxAngularRate(double maxAngularRate) {
         this.maxAngularRate = maxAngularRate;
         RotationalDeadband = maxAngularRate * 0.1;
@@ -65,59 +73,33 @@ public class SeekAprilTag implements NativeSwerveRequest {
 
     public StatusCode apply(SwerveControlParameters parameters, SwerveModule<?, ?, ?>... modulesToApply) {
         determineMovementValues();
-        return StatusCode.valueOf(SwerveJNI.JNI_Request_Apply_RobotCentric(parameters.drivetrainId,
-                VelocityX,
-                VelocityY,
-                RotationalRate,
-                Deadband,
-                RotationalDeadband,
-                CenterOfRotation.getX(),
-                CenterOfRotation.getY(),
-                DriveRequestType.value,
-                SteerRequestType.value,
-                DesaturateWheelSpeeds));
-    }
-
-    public void applyNative(int id) {
-        determineMovementValues();
-        SwerveJNI.JNI_SetControl_RobotCentric(id,
-                VelocityX,
-                VelocityY,
-                RotationalRate,
-                Deadband,
-                RotationalDeadband,
-                CenterOfRotation.getX(),
-                CenterOfRotation.getY(),
-                DriveRequestType.value,
-                SteerRequestType.value,
-                DesaturateWheelSpeeds);
+        return setpointRequest
+                .withVelocityX(VelocityX)
+                .withVelocityY(VelocityY)
+                .withRotationalRate(RotationalRate)
+                .withDriveRequestType(DriveRequestType)
+                .apply(parameters, modulesToApply);
     }
 
     private void determineMovementValues() {
-        aprilTagID = LimelightHelpers.getFiducialID("limelight");
-        aptilTagPose3d = LimelightHelpers.getTargetPose3d_RobotSpace("limelight");
+        aprilTagID = tagSelector == null ? ReefTagSelector.NO_TAG : tagSelector.getSelectedTagID();
 
-        if (Double.compare(aprilTagID, 0) == 0) {
+        if (aprilTagID == ReefTagSelector.NO_TAG) {
             VelocityX = 0;
             VelocityY = 0;
             RotationalRate = 0;
         } else {
-            if (Double.compare(aprilTagID, 11) == 0 || Double.compare(aprilTagID, 17) == 0) {
-                targetAngle = 60;
-            } else if (Double.compare(aprilTagID, 10) == 0 || Double.compare(aprilTagID, 18) == 0) {
-                targetAngle = 0;
-            } else if (Double.compare(aprilTagID, 9) == 0 || Double.compare(aprilTagID, 19) == 0) {
-                targetAngle = -60;
-            } else if (Double.compare(aprilTagID, 8) == 0 || Double.compare(aprilTagID, 20) == 0) {
-                targetAngle = -120;
-            } else if (Double.compare(aprilTagID, 7) == 0 || Double.compare(aprilTagID, 21) == 0) {
-                targetAngle = 180;
-            } else if (Double.compare(aprilTagID, 6) == 0 || Double.compare(aprilTagID, 22) == 0) {
-                targetAngle = 120;
+            targetAngle = ReefTagSelector.getFaceHeadingDegrees(aprilTagID).orElse(targetAngle);
+            if (tagSelector.isSelectedTagInView()) {
+                determineTagTranslation();
+                VelocityX = -translationController.calculate(tagForwardDistance, 1) * maxSpeed;
+                VelocityY = -translationController.calculate(tagLateralDistance, 0) * maxSpeed;
+            } else {
+                // The selection is only being held, the last distance is stale so
+                // keep squaring up without translating until the tag is seen again
+                VelocityX = 0;
+                VelocityY = 0;
             }
-
-            VelocityX = -translationController.calculate(aptilTagPose3d.getZ(), 1) * maxSpeed;
-            VelocityY = -translationController.calculate(aptilTagPose3d.getX(), 0) * maxSpeed;
             RotationalRate = headingController.calculate(robotPose2d.getRotation().getRadians(),
                     Math.toRadians(targetAngle)) * maxAngularRate;
 
@@ -131,4 +113,22 @@ public class SeekAprilTag implements NativeSwerveRequest {
             }
         }
     }
+
+    private void determineTagTranslation() {
+        // The selector makes our tag the camera's priority target, use the full
+        // target pose once the camera has caught up to that
+        if ((int) LimelightHelpers.getFiducialID("limelight") == aprilTagID) {
+            aptilTagPose3d = LimelightHelpers.getTargetPose3d_RobotSpace("limelight");
+            tagForwardDistance = aptilTagPose3d.getZ();
+            tagLateralDistance = aptilTagPose3d.getX();
+            return;
+        }
+
+        // Until then approximate from the raw detection of the selected tag
+        tagSelector.getSelectedFiducial().ifPresent(fiducial -> {
+            double tx = Math.toRadians(fiducial.txnc);
+            tagForwardDistance = fiducial.distToCamera * Math.cos(tx);
+            tagLateralDistance = fiducial.distToCamera * Math.sin(tx);
+        });
+    }
 }
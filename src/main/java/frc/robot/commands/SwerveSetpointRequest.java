@@ -0,0 +1,213 @@
+package frc.robot.commands;
+
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveControlParameters;
+import com.ctre.phoenix6.swerve.SwerveModule;
+import com.ctre.phoenix6.swerve.SwerveRequest;
+import com.ctre.phoenix6.swerve.utility.PhoenixPIDController;
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.util.DriveFeedforwards;
+import com.pathplanner.lib.util.swerve.SwerveSetpoint;
+import com.pathplanner.lib.util.swerve.SwerveSetpointGenerator;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+import frc.robot.generated.TunerConstants;
+
+/**
+ * Drive request that runs the desired chassis speeds through PathPlanner's
+ * swerve setpoint generator before handing them to the modules. The generator
+ * limits module acceleration, steering rate and wheel force from the robot
+ * mass, MOI and wheel COF in the PathPlanner settings, so the driver can't ask
+ * for more than the carpet will give.
+ * <p>
+ * Runs in the drivetrain's odometry thread, so limiting is done at the odometry
+ * rate with the measured loop period.
+ */
+public class SwerveSetpointRequest implements SwerveRequest {
+    // Resync from the measured module states if we haven't run in this long
+    private static final double kStaleSetpointSeconds = 0.1;
+
+    public double VelocityX = 0;
+    public double VelocityY = 0;
+    public double RotationalRate = 0;
+    public double Deadband = 0;
+    public double RotationalDeadband = 0;
+    public boolean FieldCentric = true;
+    public Rotation2d TargetDirection = null;
+    public PhoenixPIDController HeadingController = new PhoenixPIDController(0, 0, 0);
+    public SwerveModule.DriveRequestType DriveRequestType = SwerveModule.DriveRequestType.OpenLoopVoltage;
+    public double MaxTranslationalAcceleration = Double.POSITIVE_INFINITY;
+
+    private final SwerveSetpointGenerator setpointGenerator;
+    private final SwerveRequest.ApplyRobotSpeeds applyRobotSpeeds = new SwerveRequest.ApplyRobotSpeeds();
+    private SwerveSetpoint previousSetpoint = null;
+    private double lastApplyTimestamp = 0;
+
+    /**
+     * @param config PathPlanner robot config, if null speeds are passed through
+     *               without limiting
+     */
+    public SwerveSetpointRequest(RobotConfig config) {
+        if (config != null) {
+            setpointGenerator = new SwerveSetpointGenerator(config, TunerConstants.kMaxSteerVelocity);
+        } else {
+            setpointGenerator = null;
+        }
+        HeadingController.enableContinuousInput(-Math.PI, Math.PI);
+    }
+
+    public SwerveSetpointRequest withVelocityX(double velocityX) {
+        this.VelocityX = velocityX;
+        return this;
+    }
+
+    public SwerveSetpointRequest withVelocityY(double velocityY) {
+        this.VelocityY = velocityY;
+        return this;
+    }
+
+    public SwerveSetpointRequest withRotationalRate(double rotationalRate) {
+        this.RotationalRate = rotationalRate;
+        return this;
+    }
+
+    public SwerveSetpointRequest withDeadband(double deadband) {
+        this.Deadband = deadband;
+        return this;
+    }
+
+    public SwerveSetpointRequest withRotationalDeadband(double rotationalDeadband) {
+        this.RotationalDeadband = rotationalDeadband;
+        return this;
+    }
+
+    /**
+     * @param fieldCentric True to drive relative to the operator perspective,
+     *                     false to drive relative to the robot
+     */
+    public SwerveSetpointRequest withFieldCentric(boolean fieldCentric) {
+        this.FieldCentric = fieldCentric;
+        return this;
+    }
+
+    /**
+     * Hold a heading with the heading controller instead of using the
+     * rotational rate. Pass null to go back to the rotational rate.
+     */
+    public SwerveSetpointRequest withTargetDirection(Rotation2d targetDirection) {
+        this.TargetDirection = targetDirection;
+        return this;
+    }
+
+    public SwerveSetpointRequest withHeadingPID(double kP, double kI, double kD) {
+        this.HeadingController.setPID(kP, kI, kD);
+        return this;
+    }
+
+    /**
+     * Cap the change in translational velocity, on top of the traction limits
+     * from the setpoint generator.
+     *
+     * @param maxTranslationalAcceleration Meters per second squared
+     */
+    public SwerveSetpointRequest withMaxTranslationalAcceleration(double maxTranslationalAcceleration) {
+        this.MaxTranslationalAcceleration = maxTranslationalAcceleration;
+        return this;
+    }
+
+    public SwerveSetpointRequest withDriveRequestType(SwerveModule.DriveRequestType newDriveRequestType) {
+        this.DriveRequestType = newDriveRequestType;
+        return this;
+    }
+
+    public StatusCode apply(SwerveControlParameters parameters, SwerveModule<?, ?, ?>... modulesToApply) {
+        ChassisSpeeds desiredSpeeds = determineDesiredSpeeds(parameters);
+
+        if (setpointGenerator == null) {
+            return applyRobotSpeeds
+                    .withSpeeds(limitAcceleration(parameters.currentChassisSpeed, desiredSpeeds,
+                            parameters.updatePeriod))
+                    .withDriveRequestType(DriveRequestType)
+                    .apply(parameters, modulesToApply);
+        }
+
+        if (previousSetpoint == null || parameters.timestamp - lastApplyTimestamp > kStaleSetpointSeconds) {
+            previousSetpoint = measuredSetpoint(parameters, modulesToApply);
+        }
+        lastApplyTimestamp = parameters.timestamp;
+
+        desiredSpeeds = limitAcceleration(previousSetpoint.robotRelativeSpeeds(), desiredSpeeds,
+                parameters.updatePeriod);
+        previousSetpoint = setpointGenerator.generateSetpoint(previousSetpoint, desiredSpeeds,
+                parameters.updatePeriod);
+
+        return applyRobotSpeeds
+                .withSpeeds(previousSetpoint.robotRelativeSpeeds())
+                .withWheelForceFeedforwardsX(previousSetpoint.feedforwards().robotRelativeForcesXNewtons())
+                .withWheelForceFeedforwardsY(previousSetpoint.feedforwards().robotRelativeForcesYNewtons())
+                .withDriveRequestType(DriveRequestType)
+                .apply(parameters, modulesToApply);
+    }
+
+    private ChassisSpeeds determineDesiredSpeeds(SwerveControlParameters parameters) {
+        double velocityX = VelocityX;
+        double velocityY = VelocityY;
+        double rotationalRate = RotationalRate;
+
+        if (Math.hypot(velocityX, velocityY) < Deadband) {
+            velocityX = 0;
+            velocityY = 0;
+        }
+
+        if (TargetDirection != null) {
+            Rotation2d targetDirection = FieldCentric
+                    ? TargetDirection.rotateBy(parameters.operatorForwardDirection)
+                    : TargetDirection;
+            rotationalRate = HeadingController.calculate(
+                    parameters.currentPose.getRotation().getRadians(),
+                    targetDirection.getRadians(),
+                    parameters.timestamp);
+        } else if (Math.abs(rotationalRate) < RotationalDeadband) {
+            rotationalRate = 0;
+        }
+
+        if (!FieldCentric) {
+            return new ChassisSpeeds(velocityX, velocityY, rotationalRate);
+        }
+
+        Translation2d fieldVelocity = new Translation2d(velocityX, velocityY)
+                .rotateBy(parameters.operatorForwardDirection);
+        return ChassisSpeeds.fromFieldRelativeSpeeds(fieldVelocity.getX(), fieldVelocity.getY(), rotationalRate,
+                parameters.currentPose.getRotation());
+    }
+
+    private ChassisSpeeds limitAcceleration(ChassisSpeeds previousSpeeds, ChassisSpeeds desiredSpeeds, double dt) {
+        double deltaX = desiredSpeeds.vxMetersPerSecond - previousSpeeds.vxMetersPerSecond;
+        double deltaY = desiredSpeeds.vyMetersPerSecond - previousSpeeds.vyMetersPerSecond;
+        double deltaMagnitude = Math.hypot(deltaX, deltaY);
+        double maxDelta = MaxTranslationalAcceleration * dt;
+
+        if (deltaMagnitude <= maxDelta) {
+            return desiredSpeeds;
+        }
+
+        double scale = maxDelta / deltaMagnitude;
+        return new ChassisSpeeds(
+                previousSpeeds.vxMetersPerSecond + deltaX * scale,
+                previousSpeeds.vyMetersPerSecond + deltaY * scale,
+                desiredSpeeds.omegaRadiansPerSecond);
+    }
+
+    private SwerveSetpoint measuredSetpoint(SwerveControlParameters parameters,
+            SwerveModule<?, ?, ?>... modulesToApply) {
+        SwerveModuleState[] moduleStates = new SwerveModuleState[modulesToApply.length];
+        for (int i = 0; i < modulesToApply.length; i++) {
+            moduleStates[i] = modulesToApply[i].getCurrentState();
+        }
+        return new SwerveSetpoint(parameters.currentChassisSpeed, moduleStates,
+                DriveFeedforwards.zeros(modulesToApply.length));
+    }
+}
@@ -12,6 +12,7 @@ import com.ctre.phoenix6.swerve.SwerveModuleConstants.*;
 import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.system.plant.DCMotor;
 import edu.wpi.first.units.measure.*;
 
 import frc.robot.subsystem.CommandSwerveDrivetrain;
@@ -84,6 +85,10 @@ public class TunerConstants {
     private static final double kSteerGearRatio = 21.428571428571427;
     private static final Distance kWheelRadius = Inches.of(2);
 
+    // Free speed of the azimuth at the module, used to limit steering rate in the setpoint generator
+    public static final AngularVelocity kMaxSteerVelocity =
+        RadiansPerSecond.of(DCMotor.getFalcon500(1).freeSpeedRadPerSec / kSteerGearRatio);
+
     private static final boolean kInvertLeftSide = false;
     private static final boolean kInvertRightSide = true;
 
@@ -0,0 +1,68 @@
+package frc.robot.sim;
+
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.system.plant.LinearSystemId;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.DCMotorSim;
+
+/**
+ * Physics model of the end effector's coral roller. The roller spins freely
+ * until a coral that has broken the beam has been pulled far enough to reach
+ * the stop, then stalls there while driven inward, so the motor shows the
+ * inrush of spinning up and the stall of seating like it would on the robot.
+ * The coral sensor itself is toggled from the simulation GUI.
+ */
+public class CoralRollerSimulation implements SimulatedMechanism {
+    private static final DCMotor kMotor = DCMotor.getKrakenX60(1);
+    private static final double kGearing = 1;
+    private static final double kMomentOfInertia = 0.0005; // kg m^2, roller and coral
+    // Roller rotations from the beam breaking to the coral hitting the stop
+    private static final double kSeatRotations = 3;
+
+    private final TalonFXSimState simState;
+    private final DIOSim coralSensor;
+    private final DCMotorSim motorSim = new DCMotorSim(
+            LinearSystemId.createDCMotorSystem(kMotor, kMomentOfInertia, kGearing), kMotor);
+    private double stopRotations = Double.NaN;
+
+    /**
+     * @param motor             Coral roller motor
+     * @param coralSensorChannel DIO channel of the active low coral sensor
+     */
+    public CoralRollerSimulation(TalonFX motor, int coralSensorChannel) {
+        simState = motor.getSimState();
+        coralSensor = new DIOSim(coralSensorChannel);
+    }
+
+    @Override
+    public void updateSimState(double dtSeconds, double supplyVoltage) {
+        simState.setSupplyVoltage(supplyVoltage);
+        double voltage = simState.getMotorVoltage();
+
+        // Active low
+        boolean hasCoral = !coralSensor.getValue();
+        if (!hasCoral) {
+            stopRotations = Double.NaN;
+        } else if (Double.isNaN(stopRotations)) {
+            stopRotations = getPositionRotations() + kSeatRotations;
+        }
+
+        motorSim.setInputVoltage(voltage);
+        motorSim.update(dtSeconds);
+        if (!Double.isNaN(stopRotations) && getPositionRotations() >= stopRotations && voltage >= 0) {
+            // Coral against the stop, the roller can't turn any further inward
+            motorSim.setState(Units.rotationsToRadians(stopRotations), 0);
+        }
+
+        simState.setRawRotorPosition(getPositionRotations() * kGearing);
+        simState.setRotorVelocity(Units.radiansToRotations(motorSim.getAngularVelocityRadPerSec()) * kGearing);
+    }
+
+    private double getPositionRotations() {
+        return Units.radiansToRotations(motorSim.getAngularPositionRad());
+    }
+}
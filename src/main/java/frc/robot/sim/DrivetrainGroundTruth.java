@@ -0,0 +1,59 @@
+package frc.robot.sim;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
+import frc.robot.subsystem.CommandSwerveDrivetrain;
+
+/**
+ * Where the simulated robot actually is. The drivetrain's own pose has vision
+ * fused in, so simulated cameras can't use it without feeding the estimator
+ * its own output. The swerve sim has no wheel slip, so odometry from the raw
+ * gyro heading and module positions is the true pose.
+ * <p>
+ * The sim has no field of its own, so a pose reset is where the robot was
+ * placed, like setting it down at the start of an auto. The true pose jumps
+ * there too, otherwise it stays wherever the robot booted and every simulated
+ * camera frame after an auto starts is off by the reset.
+ */
+public class DrivetrainGroundTruth implements SimulatedMechanism {
+    private final CommandSwerveDrivetrain drivetrain;
+    private SwerveDriveOdometry odometry = null;
+    private Pose2d startPose = null;
+
+    public DrivetrainGroundTruth(CommandSwerveDrivetrain drivetrain) {
+        this.drivetrain = drivetrain;
+        drivetrain.addPoseResetListener(this::reset);
+    }
+
+    private void reset(Pose2d pose) {
+        var state = drivetrain.getState();
+        if (odometry == null || state.ModulePositions == null) {
+            startPose = pose;
+            return;
+        }
+        odometry.resetPosition(state.RawHeading, state.ModulePositions, pose);
+    }
+
+    @Override
+    public void updateSimState(double dtSeconds, double supplyVoltage) {
+        var state = drivetrain.getState();
+        if (state.ModulePositions == null) {
+            return;
+        }
+
+        if (odometry == null) {
+            // Start wherever the robot was placed, or thinks it is
+            odometry = new SwerveDriveOdometry(drivetrain.getKinematics(), state.RawHeading, state.ModulePositions,
+                    startPose != null ? startPose : state.Pose);
+            return;
+        }
+        odometry.update(state.RawHeading, state.ModulePositions);
+    }
+
+    /**
+     * True pose, or the drivetrain's pose before the first update.
+     */
+    public Pose2d getPose() {
+        return odometry != null ? odometry.getPoseMeters() : drivetrain.getState().Pose;
+    }
+}
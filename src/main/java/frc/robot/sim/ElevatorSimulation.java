@@ -0,0 +1,118 @@
+package frc.robot.sim;
+
+import com.ctre.phoenix6.hardware.TalonFX;
+import com.ctre.phoenix6.sim.TalonFXSimState;
+
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.ElevatorSim;
+
+/**
+ * Physics model of the elevator. The applied voltage from the left motor's sim
+ * state, trimmed to what the supply current limit would allow, drives an
+ * {@link ElevatorSim} with gravity, and the carriage position is written back
+ * to both motors' rotors. The home sensor reads active with the carriage at or
+ * below its mounting height.
+ * <p>
+ * Heights are kept in motor rotations, the same units as the elevator's
+ * positions, so no real drum radius or gearing is needed, only their ratio.
+ */
+public class ElevatorSimulation implements SimulatedMechanism {
+    private static final DCMotor kMotor = DCMotor.getKrakenX60(1);
+    private static final int kMotorCount = 2;
+    private static final double kCarriageMassKg = 8.0;
+    private static final double kMetersPerRotation = 1.4 / 63.25;
+    // Any gearing works, the drum radius is derived so one rotor rotation moves kMetersPerRotation
+    private static final double kGearing = 5;
+    private static final double kDrumRadiusMeters = kMetersPerRotation * kGearing / (2 * Math.PI);
+    private static final double kSupplyCurrentLimit = 25; // amps per motor
+    // Start just above the home sensor so it reads inactive at boot, matching the DIO default, and
+    // the first pass over the sensor re-zeros the elevator like it would on the robot
+    private static final double kStartAboveSensorRotations = 0.5;
+
+    private final TalonFXSimState leftSimState;
+    private final TalonFXSimState rightSimState;
+    private final DIOSim homeSensor;
+    private final double sensorRotations;
+    private final ElevatorSim elevatorSim;
+
+    /**
+     * @param leftMotor         Commanded motor
+     * @param rightMotor        Follower motor
+     * @param homeSensorChannel DIO channel of the active low home sensor
+     * @param sensorRotations   Height of the home sensor in rotations
+     * @param maxRotations      Height of the hard stop in rotations
+     */
+    public ElevatorSimulation(TalonFX leftMotor, TalonFX rightMotor, int homeSensorChannel, double sensorRotations,
+            double maxRotations) {
+        leftSimState = leftMotor.getSimState();
+        rightSimState = rightMotor.getSimState();
+        homeSensor = new DIOSim(homeSensorChannel);
+        this.sensorRotations = sensorRotations;
+        elevatorSim = new ElevatorSim(
+                DCMotor.getKrakenX60(kMotorCount),
+                kGearing,
+                kCarriageMassKg,
+                kDrumRadiusMeters,
+                0,
+                maxRotations * kMetersPerRotation,
+                true,
+                (sensorRotations + kStartAboveSensorRotations) * kMetersPerRotation);
+        updateSensors();
+    }
+
+    @Override
+    public void updateSimState(double dtSeconds, double supplyVoltage) {
+        leftSimState.setSupplyVoltage(supplyVoltage);
+        rightSimState.setSupplyVoltage(supplyVoltage);
+
+        double voltage = limitSupplyCurrent(leftSimState.getMotorVoltage(), supplyVoltage);
+        elevatorSim.setInputVoltage(voltage);
+        elevatorSim.update(dtSeconds);
+
+        updateSensors();
+    }
+
+    public double getPositionRotations() {
+        return elevatorSim.getPositionMeters() / kMetersPerRotation;
+    }
+
+    public double getVelocityRotationsPerSecond() {
+        return elevatorSim.getVelocityMetersPerSecond() / kMetersPerRotation;
+    }
+
+    private void updateSensors() {
+        double position = getPositionRotations();
+        double velocity = getVelocityRotationsPerSecond();
+
+        leftSimState.setRawRotorPosition(position);
+        leftSimState.setRotorVelocity(velocity);
+        rightSimState.setRawRotorPosition(position);
+        rightSimState.setRotorVelocity(velocity);
+
+        // Active low
+        homeSensor.setValue(position > sensorRotations);
+    }
+
+    /**
+     * Scale the applied voltage down until each motor's supply current is
+     * within the limit. Supply current is stator current times duty cycle.
+     */
+    private double limitSupplyCurrent(double voltage, double supplyVoltage) {
+        if (supplyVoltage <= 0) {
+            return 0;
+        }
+
+        double rotorRadiansPerSecond = Units.rotationsToRadians(getVelocityRotationsPerSecond());
+        for (int i = 0; i < 3; i++) {
+            double statorCurrent = kMotor.getCurrent(rotorRadiansPerSecond, voltage);
+            double supplyCurrent = Math.abs(statorCurrent * voltage / supplyVoltage);
+            if (supplyCurrent <= kSupplyCurrentLimit) {
+                break;
+            }
+            voltage *= kSupplyCurrentLimit / supplyCurrent;
+        }
+        return voltage;
+    }
+}
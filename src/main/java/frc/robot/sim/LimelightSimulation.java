@@ -0,0 +1,307 @@
+package frc.robot.sim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.math.geometry.Translation3d;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Stand-in for a Limelight in simulation. Projects the 2025 field tags into a
+ * camera on the simulated robot and publishes the same NetworkTables entries
+ * the Limelight does, so LimelightHelpers and everything built on it run
+ * unchanged. Frames are captured at the frame rate and published after the
+ * latency, with the NT timestamp at publish time so consumers back out the
+ * capture time the same way they do on the robot. Noise is seeded so every
+ * run sees the same frames.
+ */
+public class LimelightSimulation implements SimulatedMechanism {
+    private static final double kTagSizeMeters = 0.1651;
+
+    private record Detection(int id, double txnc, double tync, double ta, double distToCamera, double distToRobot,
+            double ambiguity, Pose3d tagPose, Transform3d robotToTag) {
+    }
+
+    private record Frame(double publishTime, double[] botpose, double[] botposeOrb, double[] rawFiducials,
+            Detection primary) {
+    }
+
+    private final Supplier<Pose2d> robotPoseSupplier;
+    private final AprilTagFieldLayout fieldLayout = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
+    private final Random random = new Random(1250);
+    private final ArrayDeque<Frame> pendingFrames = new ArrayDeque<>();
+
+    private final DoubleArrayPublisher botposePublisher;
+    private final DoubleArrayPublisher botposeOrbPublisher;
+    private final DoubleArrayPublisher rawFiducialsPublisher;
+    private final DoubleArrayPublisher targetPoseRobotSpacePublisher;
+    private final DoublePublisher tidPublisher;
+    private final DoublePublisher tvPublisher;
+    private final DoublePublisher txPublisher;
+    private final DoublePublisher tyPublisher;
+    private final DoublePublisher taPublisher;
+    private final DoublePublisher latencyPublisher;
+    private final DoubleSubscriber priorityIdSubscriber;
+
+    private Transform3d robotToCamera = new Transform3d(
+            new Translation3d(0.3, 0, 0.25), new Rotation3d(0, Math.toRadians(-15), 0));
+    private double latencyMilliseconds = 30;
+    private double framesPerSecond = 20;
+    private double horizontalFovDegrees = 62.5;
+    private double verticalFovDegrees = 48.9;
+    private double maxDistanceMeters = 5;
+    private double angleNoiseDegrees = 0.1;
+    private double distanceNoiseFraction = 0.02;
+    private double poseNoiseMetersPerMeter = 0.02;
+    private double headingNoiseDegrees = 2;
+
+    private double nextFrameTime = 0;
+
+    /**
+     * @param name              Limelight name, the NetworkTables table
+     * @param robotPoseSupplier True pose of the simulated robot
+     */
+    public LimelightSimulation(String name, Supplier<Pose2d> robotPoseSupplier) {
+        this.robotPoseSupplier = robotPoseSupplier;
+
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(name);
+        botposePublisher = table.getDoubleArrayTopic("botpose_wpiblue").publish();
+        botposeOrbPublisher = table.getDoubleArrayTopic("botpose_orb_wpiblue").publish();
+        rawFiducialsPublisher = table.getDoubleArrayTopic("rawfiducials").publish();
+        targetPoseRobotSpacePublisher = table.getDoubleArrayTopic("targetpose_robotspace").publish();
+        tidPublisher = table.getDoubleTopic("tid").publish();
+        tvPublisher = table.getDoubleTopic("tv").publish();
+        txPublisher = table.getDoubleTopic("tx").publish();
+        tyPublisher = table.getDoubleTopic("ty").publish();
+        taPublisher = table.getDoubleTopic("ta").publish();
+        latencyPublisher = table.getDoubleTopic("tl").publish();
+        priorityIdSubscriber = table.getDoubleTopic("priorityid").subscribe(-1);
+    }
+
+    public LimelightSimulation withRobotToCamera(Transform3d robotToCamera) {
+        this.robotToCamera = robotToCamera;
+        return this;
+    }
+
+    public LimelightSimulation withLatency(double latencyMilliseconds) {
+        this.latencyMilliseconds = latencyMilliseconds;
+        return this;
+    }
+
+    public LimelightSimulation withFrameRate(double framesPerSecond) {
+        this.framesPerSecond = framesPerSecond;
+        return this;
+    }
+
+    public LimelightSimulation withFieldOfView(double horizontalDegrees, double verticalDegrees) {
+        this.horizontalFovDegrees = horizontalDegrees;
+        this.verticalFovDegrees = verticalDegrees;
+        return this;
+    }
+
+    public LimelightSimulation withMaxDistance(double maxDistanceMeters) {
+        this.maxDistanceMeters = maxDistanceMeters;
+        return this;
+    }
+
+    /**
+     * @param angleDegrees          Standard deviation of tx/ty
+     * @param distanceFraction      Standard deviation of tag distance, as a
+     *                              fraction of the distance
+     * @param poseMetersPerMeter    Standard deviation of the bot pose per meter
+     *                              of average tag distance
+     * @param headingDegrees        Standard deviation of the MegaTag1 heading
+     */
+    public LimelightSimulation withNoise(double angleDegrees, double distanceFraction, double poseMetersPerMeter,
+            double headingDegrees) {
+        this.angleNoiseDegrees = angleDegrees;
+        this.distanceNoiseFraction = distanceFraction;
+        this.poseNoiseMetersPerMeter = poseMetersPerMeter;
+        this.headingNoiseDegrees = headingDegrees;
+        return this;
+    }
+
+    @Override
+    public void updateSimState(double dtSeconds, double supplyVoltage) {
+        double now = Timer.getFPGATimestamp();
+
+        if (now >= nextFrameTime) {
+            pendingFrames.add(captureFrame(now + latencyMilliseconds / 1000.0));
+            nextFrameTime = Math.max(nextFrameTime + 1 / framesPerSecond, now);
+        }
+
+        while (!pendingFrames.isEmpty() && pendingFrames.peek().publishTime() <= now) {
+            publish(pendingFrames.poll());
+        }
+    }
+
+    private Frame captureFrame(double publishTime) {
+        Pose2d robotPose2d = robotPoseSupplier.get();
+        Pose3d robotPose = new Pose3d(robotPose2d);
+        Pose3d cameraPose = robotPose.transformBy(robotToCamera);
+        int priorityId = (int) priorityIdSubscriber.get();
+
+        List<Detection> detections = new ArrayList<>();
+        for (AprilTag tag : fieldLayout.getTags()) {
+            Detection detection = detect(tag, robotPose, cameraPose);
+            if (detection != null) {
+                detections.add(detection);
+            }
+        }
+
+        Detection primary = null;
+        for (Detection detection : detections) {
+            if (detection.id() == priorityId) {
+                primary = detection;
+                break;
+            }
+            if (primary == null || detection.ta() > primary.ta()) {
+                primary = detection;
+            }
+        }
+
+        double[] rawFiducials = new double[detections.size() * 7];
+        for (int i = 0; i < detections.size(); i++) {
+            writeFiducial(rawFiducials, i * 7, detections.get(i));
+        }
+
+        if (detections.isEmpty()) {
+            return new Frame(publishTime, new double[0], new double[0], rawFiducials, null);
+        }
+
+        return new Frame(publishTime,
+                botpose(robotPose2d, detections, true),
+                botpose(robotPose2d, detections, false),
+                rawFiducials,
+                primary);
+    }
+
+    private Detection detect(AprilTag tag, Pose3d robotPose, Pose3d cameraPose) {
+        Transform3d cameraToTag = new Transform3d(cameraPose, tag.pose);
+        Translation3d inCamera = cameraToTag.getTranslation();
+        double distance = inCamera.getNorm();
+        if (inCamera.getX() <= 0 || distance > maxDistanceMeters) {
+            return null;
+        }
+
+        // Tags are only seen from the front
+        Translation3d tagToCamera = cameraPose.getTranslation().minus(tag.pose.getTranslation());
+        Translation3d tagNormal = new Translation3d(1, 0, 0).rotateBy(tag.pose.getRotation());
+        if (tagToCamera.getX() * tagNormal.getX() + tagToCamera.getY() * tagNormal.getY()
+                + tagToCamera.getZ() * tagNormal.getZ() <= 0) {
+            return null;
+        }
+
+        // Limelight angles are positive right and up
+        double txnc = -Math.toDegrees(Math.atan2(inCamera.getY(), inCamera.getX()));
+        double tync = Math.toDegrees(Math.atan2(inCamera.getZ(), inCamera.getX()));
+        if (Math.abs(txnc) > horizontalFovDegrees / 2 || Math.abs(tync) > verticalFovDegrees / 2) {
+            return null;
+        }
+
+        double tagAngularSize = kTagSizeMeters / distance;
+        double ta = 100 * tagAngularSize * tagAngularSize
+                / (Math.toRadians(horizontalFovDegrees) * Math.toRadians(verticalFovDegrees));
+
+        return new Detection(
+                tag.ID,
+                txnc + random.nextGaussian() * angleNoiseDegrees,
+                tync + random.nextGaussian() * angleNoiseDegrees,
+                ta,
+                distance * (1 + random.nextGaussian() * distanceNoiseFraction),
+                tag.pose.getTranslation().getDistance(robotPose.getTranslation()),
+                Math.min(1, 0.05 * distance),
+                tag.pose,
+                new Transform3d(robotPose, tag.pose));
+    }
+
+    private double[] botpose(Pose2d robotPose, List<Detection> detections, boolean megaTag1) {
+        double averageDistance = 0;
+        double averageArea = 0;
+        double tagSpan = 0;
+        for (Detection detection : detections) {
+            averageDistance += detection.distToCamera() / detections.size();
+            averageArea += detection.ta() / detections.size();
+            for (Detection other : detections) {
+                tagSpan = Math.max(tagSpan,
+                        detection.tagPose().getTranslation().getDistance(other.tagPose().getTranslation()));
+            }
+        }
+
+        double poseNoise = poseNoiseMetersPerMeter * averageDistance / Math.sqrt(detections.size());
+        // MegaTag2 takes its heading from the gyro
+        double headingNoise = megaTag1 ? random.nextGaussian() * headingNoiseDegrees : 0;
+
+        double[] botpose = new double[11 + detections.size() * 7];
+        botpose[0] = robotPose.getX() + random.nextGaussian() * poseNoise;
+        botpose[1] = robotPose.getY() + random.nextGaussian() * poseNoise;
+        botpose[5] = robotPose.getRotation().getDegrees() + headingNoise;
+        botpose[6] = latencyMilliseconds;
+        botpose[7] = detections.size();
+        botpose[8] = tagSpan;
+        botpose[9] = averageDistance;
+        botpose[10] = averageArea;
+        for (int i = 0; i < detections.size(); i++) {
+            writeFiducial(botpose, 11 + i * 7, detections.get(i));
+        }
+        return botpose;
+    }
+
+    private static void writeFiducial(double[] array, int index, Detection detection) {
+        array[index] = detection.id();
+        array[index + 1] = detection.txnc();
+        array[index + 2] = detection.tync();
+        array[index + 3] = detection.ta();
+        array[index + 4] = detection.distToCamera();
+        array[index + 5] = detection.distToRobot();
+        array[index + 6] = detection.ambiguity();
+    }
+
+    private void publish(Frame frame) {
+        long timestamp = (long) (frame.publishTime() * 1e6);
+
+        botposePublisher.set(frame.botpose(), timestamp);
+        botposeOrbPublisher.set(frame.botposeOrb(), timestamp);
+        rawFiducialsPublisher.set(frame.rawFiducials(), timestamp);
+        latencyPublisher.set(latencyMilliseconds, timestamp);
+
+        Detection primary = frame.primary();
+        if (primary == null) {
+            tvPublisher.set(0, timestamp);
+            tidPublisher.set(-1, timestamp);
+            targetPoseRobotSpacePublisher.set(new double[6], timestamp);
+            return;
+        }
+
+        tvPublisher.set(1, timestamp);
+        tidPublisher.set(primary.id(), timestamp);
+        txPublisher.set(primary.txnc(), timestamp);
+        tyPublisher.set(primary.tync(), timestamp);
+        taPublisher.set(primary.ta(), timestamp);
+
+        // Camera style axes, x right, y down, z forward, turn about y in the pitch slot
+        Transform3d robotToTag = primary.robotToTag();
+        targetPoseRobotSpacePublisher.set(new double[] {
+                -robotToTag.getY(),
+                -robotToTag.getZ(),
+                robotToTag.getX(),
+                0,
+                -Math.toDegrees(robotToTag.getRotation().getZ()),
+                0 }, timestamp);
+    }
+}
@@ -0,0 +1,15 @@
+package frc.robot.sim;
+
+/**
+ * Part of the robot with a physics model that has to be stepped in simulation.
+ * Every mechanism is stepped together from the robot loop with the same fixed
+ * time step.
+ */
+@FunctionalInterface
+public interface SimulatedMechanism {
+    /**
+     * @param dtSeconds     Time since the last update
+     * @param supplyVoltage Simulated battery voltage
+     */
+    void updateSimState(double dtSeconds, double supplyVoltage);
+}
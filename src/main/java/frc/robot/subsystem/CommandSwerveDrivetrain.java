@@ -2,6 +2,10 @@ package frc.robot.subsystem;
 
 import static edu.wpi.first.units.Units.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import com.ctre.phoenix6.SignalLogger;
@@ -13,13 +17,16 @@ import com.pathplanner.lib.auto.AutoBuilder;
 import com.pathplanner.lib.config.PIDConstants;
 import com.pathplanner.lib.config.RobotConfig;
 import com.pathplanner.lib.controllers.PPHolonomicDriveController;
+import com.pathplanner.lib.util.DriveFeedforwards;
 
 import edu.wpi.first.math.Matrix;
-import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.numbers.N1;
 import edu.wpi.first.math.numbers.N3;
-import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DataLogManager;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.DriverStation.Alliance;
 import edu.wpi.first.wpilibj.Notifier;
@@ -29,6 +36,9 @@ import edu.wpi.first.wpilibj2.command.Subsystem;
 import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
 import frc.robot.LimelightHelpers;
 import frc.robot.generated.TunerConstants.TunerSwerveDrivetrain;
+import frc.robot.util.VisionFusionStrategy;
+import frc.robot.util.VisionQualityMonitor;
+import frc.robot.util.VisionRecorder;
 
 /**
  * Class that extends the Phoenix 6 SwerveDrivetrain class and implements
@@ -46,6 +56,20 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     /* Keep track if we've ever applied the operator perspective before or not */
     private boolean m_hasAppliedOperatorPerspective = false;
 
+    /* How Limelight estimates are fused, and where they are recorded if anywhere */
+    private VisionFusionStrategy m_visionFusionStrategy = VisionFusionStrategy.MEGATAG2_FIXED;
+    private VisionRecorder m_visionRecorder = null;
+    private double m_lastVisionTimestamp = 0;
+    private final VisionQualityMonitor m_limelightQuality = new VisionQualityMonitor("limelight");
+
+    /* Told the new pose whenever it's reset */
+    private final List<Consumer<Pose2d>> m_poseResetListeners = new ArrayList<>();
+    /* Set while disabled once vision has seeded the pose, autos keep it instead of their start pose */
+    private boolean m_poseSeededFromVision = false;
+
+    /* PathPlanner robot config, null if the GUI settings could not be loaded */
+    private RobotConfig m_robotConfig = null;
+
     /* Swerve requests to apply during SysId characterization */
     private final SwerveRequest.SysIdSwerveTranslation m_translationCharacterization = new SwerveRequest.SysIdSwerveTranslation();
     private final SwerveRequest.SysIdSwerveSteerGains m_steerCharacterization = new SwerveRequest.SysIdSwerveSteerGains();
@@ -205,20 +229,14 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     private void configureAutoBuilder() {
         try {
             var config = RobotConfig.fromGUISettings();
+            m_robotConfig = config;
             AutoBuilder.configure(
                     () -> getState().Pose, // Supplier of current robot pose
-                    this::resetPose, // Consumer for seeding pose against auto
+                    this::resetAutoStartPose, // Consumer for seeding pose against auto
                     () -> getState().Speeds, // Supplier of current robot speeds
                     // Consumer of ChassisSpeeds and feedforwards to drive the robot
-                    (speeds, feedforwards) -> setControl(
-                            m_pathApplyRobotSpeeds.withSpeeds(speeds)
-                                    .withWheelForceFeedforwardsX(feedforwards.robotRelativeForcesXNewtons())
-                                    .withWheelForceFeedforwardsY(feedforwards.robotRelativeForcesYNewtons())),
-                    new PPHolonomicDriveController(
-                            // PID constants for translation
-                            new PIDConstants(10, 0, 0),
-                            // PID constants for rotation
-                            new PIDConstants(7, 0, 0)),
+                    this::driveRobotRelative,
+                    createPathController(),
                     config,
                     // Assume the path needs to be flipped for Red vs Blue, this is normally the
                     // case
@@ -231,6 +249,41 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
         }
     }
 
+    /**
+     * Creates a path following controller with this drivetrain's gains.
+     *
+     * @return New controller
+     */
+    public static PPHolonomicDriveController createPathController() {
+        return new PPHolonomicDriveController(
+                // PID constants for translation
+                new PIDConstants(10, 0, 0),
+                // PID constants for rotation
+                new PIDConstants(7, 0, 0));
+    }
+
+    /**
+     * Drives at robot relative speeds with wheel force feedforwards, as output
+     * by path following.
+     *
+     * @param speeds       Robot relative speeds
+     * @param feedforwards Feedforwards for each module
+     */
+    public void driveRobotRelative(ChassisSpeeds speeds, DriveFeedforwards feedforwards) {
+        setControl(m_pathApplyRobotSpeeds.withSpeeds(speeds)
+                .withWheelForceFeedforwardsX(feedforwards.robotRelativeForcesXNewtons())
+                .withWheelForceFeedforwardsY(feedforwards.robotRelativeForcesYNewtons()));
+    }
+
+    /**
+     * Returns the PathPlanner robot config loaded from the GUI settings.
+     *
+     * @return Robot config, or null if it could not be loaded
+     */
+    public RobotConfig getRobotConfig() {
+        return m_robotConfig;
+    }
+
     /**
      * Returns a command that applies the specified control request to this swerve
      * drivetrain.
@@ -290,16 +343,105 @@ public class CommandSwerveDrivetrain extends TunerSwerveDrivetrain implements Su
     }
 
     public void addLimelightVisionMeasurements() {
+        long startNanos = System.nanoTime();
         var driveState = getState();
         double headingDeg = driveState.Pose.getRotation().getDegrees();
-        double omegaRps = Units.radiansToRotations(driveState.Speeds.omegaRadiansPerSecond);
+        double omega = driveState.Speeds.omegaRadiansPerSecond;
 
         LimelightHelpers.SetRobotOrientation("limelight", headingDeg, 0, 0, 0, 0, 0);
         var llMeasurement = LimelightHelpers.getBotPoseEstimate_wpiBlue_MegaTag2("limelight");
-        if (llMeasurement != null && llMeasurement.tagCount > 0 && omegaRps < 2.0) {
-            setVisionMeasurementStdDevs(VecBuilder.fill(.7, .7, 9999999));
-            addVisionMeasurement(llMeasurement.pose, Utils.fpgaToCurrentTime(llMeasurement.timestampSeconds));
+        if (llMeasurement == null) {
+            return;
+        }
+
+        double timestamp = Utils.fpgaToCurrentTime(llMeasurement.timestampSeconds);
+        boolean newFrame = llMeasurement.timestampSeconds != m_lastVisionTimestamp;
+        m_lastVisionTimestamp = llMeasurement.timestampSeconds;
+        if (m_visionRecorder != null && newFrame) {
+            m_visionRecorder.recordVisionFrame(llMeasurement, timestamp, omega);
+        }
+
+        var estimatedPoseAtFrame = newFrame ? samplePoseAt(timestamp) : Optional.<Pose2d>empty();
+        var stdDevs = m_visionFusionStrategy.evaluate(llMeasurement, omega);
+        stdDevs.ifPresent(visionStdDevs -> {
+            setVisionMeasurementStdDevs(visionStdDevs);
+            addVisionMeasurement(llMeasurement.pose, timestamp);
+        });
+
+        if (newFrame) {
+            var megaTag1Measurement = LimelightHelpers.getBotPoseEstimate_wpiBlue("limelight");
+            m_limelightQuality.update(llMeasurement, megaTag1Measurement, estimatedPoseAtFrame,
+                    Utils.getCurrentTimeSeconds() - timestamp, stdDevs.isPresent(), System.nanoTime() - startNanos);
+        }
+    }
+
+    public VisionQualityMonitor getLimelightQuality() {
+        return m_limelightQuality;
+    }
+
+    public void setVisionFusionStrategy(VisionFusionStrategy strategy) {
+        m_visionFusionStrategy = strategy;
+    }
+
+    /**
+     * Record every Limelight frame read from here on, or stop with null.
+     * Odometry samples are recorded from the telemetry callback.
+     */
+    public void setVisionRecorder(VisionRecorder recorder) {
+        m_visionRecorder = recorder;
+    }
+
+    /**
+     * Call the listener with the new pose every time the pose is reset, by an
+     * auto, vision seeding or the driver. seedFieldCentric() only changes which
+     * way the robot thinks it's facing, so it isn't reported.
+     */
+    public void addPoseResetListener(Consumer<Pose2d> listener) {
+        m_poseResetListeners.add(listener);
+    }
+
+    /** Reset the pose to where averaged vision has the robot sitting. */
+    public void seedPoseFromVision(Pose2d pose) {
+        resetPose(pose);
+        m_poseSeededFromVision = true;
+    }
+
+    public void clearVisionSeed() {
+        m_poseSeededFromVision = false;
+    }
+
+    /**
+     * Reset to an auto's start pose, unless vision has seeded the pose since
+     * the robot was last disabled. The seed is where the robot actually is,
+     * the start pose only where it was meant to be placed.
+     */
+    public void resetAutoStartPose(Pose2d pose) {
+        if (m_poseSeededFromVision) {
+            DataLogManager.log(String.format("GatorBot: Keeping vision seeded pose %s over auto start %s",
+                    getState().Pose, pose));
+            return;
         }
+        resetPose(pose);
+    }
+
+    @Override
+    public void resetPose(Pose2d pose) {
+        super.resetPose(pose);
+        m_poseResetListeners.forEach(listener -> listener.accept(pose));
+    }
+
+    @Override
+    public void resetTranslation(Translation2d translation) {
+        Rotation2d rotation = getState().Pose.getRotation();
+        super.resetTranslation(translation);
+        m_poseResetListeners.forEach(listener -> listener.accept(new Pose2d(translation, rotation)));
+    }
+
+    @Override
+    public void resetRotation(Rotation2d rotation) {
+        Translation2d translation = getState().Pose.getTranslation();
+        super.resetRotation(rotation);
+        m_poseResetListeners.forEach(listener -> listener.accept(new Pose2d(translation, rotation)));
     }
 
     private void startSimThread() {
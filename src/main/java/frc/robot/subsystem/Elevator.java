@@ -7,7 +7,12 @@ package frc.robot.subsystem;
 import static edu.wpi.first.units.Units.RotationsPerSecond;
 import static edu.wpi.first.units.Units.RotationsPerSecondPerSecond;
 import static edu.wpi.first.units.Units.Second;
+import static edu.wpi.first.units.Units.Volts;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.SignalLogger;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.Utils;
 import com.ctre.phoenix6.configs.CurrentLimitsConfigs;
 import com.ctre.phoenix6.configs.MotionMagicConfigs;
 import com.ctre.phoenix6.configs.MotorOutputConfigs;
@@ -17,7 +22,9 @@ import com.ctre.phoenix6.configs.SoftwareLimitSwitchConfigs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.configs.VoltageConfigs;
 import com.ctre.phoenix6.controls.DutyCycleOut;
+import com.ctre.phoenix6.controls.Follower;
 import com.ctre.phoenix6.controls.MotionMagicVoltage;
+import com.ctre.phoenix6.controls.VoltageOut;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.GravityTypeValue;
 import com.ctre.phoenix6.signals.InvertedValue;
@@ -26,16 +33,36 @@ import com.ctre.phoenix6.signals.StaticFeedforwardSignValue;
 
 import edu.wpi.first.epilogue.Logged;
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.filter.Debouncer.DebounceType;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.units.measure.Angle;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.Current;
+import edu.wpi.first.wpilibj.Alert;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.Alert.AlertType;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import edu.wpi.first.wpilibj2.command.sysid.SysIdRoutine;
+import frc.robot.sim.ElevatorSimulation;
 import frc.robot.util.HealthStatus;
 import frc.robot.util.TalonHealthChecker;
+import frc.robot.util.TimestampedDigitalInput;
 import frc.robot.util.TunableTalonFX;
 
 public class Elevator extends SubsystemBase {
+  public enum HomingResult {
+    NOT_HOMED,
+    SENSOR,
+    STALL,
+    FAILED,
+    INTERRUPTED
+  }
+
   public enum Position {
     STARTING_CONFIGURATION(0),
     SENSOR(0.8),
@@ -56,14 +83,84 @@ public class Elevator extends SubsystemBase {
     }
   }
 
+  // Motion Magic profile, also used to predict move times
+  private static final double kCruiseVelocity = 75; // rotations per second
+  private static final double kAcceleration = 150; // rotations per second^2
+  private static final double kJerk = 0; // rotations per second^3, 0 disables jerk limiting
+  private static final TrapezoidProfile.Constraints kProfileConstraints = new TrapezoidProfile.Constraints(
+      kCruiseVelocity, kAcceleration);
+
+  // Expected delay between sending setPosition and the Talon applying it, only used for the error bound
+  private static final double kSetPositionLatencySeconds = 0.005;
+
+  // Homing, move fast to this far above the sensor then creep down onto it
+  private static final double kHomingSlowZone = 3; // rotations
+  private static final double kHomingCreepOutput = -0.05;
+  private static final double kHomingTimeoutSeconds = 6;
+  // Sensor fallback, a creep into the hard stop shows as current with no motion
+  private static final double kStallCurrent = 8; // stator amps
+  private static final double kStallVelocity = 0.2; // rotations per second
+  private static final double kStallSeconds = 0.25;
+
+  // SysId tests stop this far short of the soft limits
+  private static final double kSysIdLimitMargin = 3; // rotations
+
+  // A move is done once within both of these
+  private static final double kPositionTolerance = 0.5; // rotations
+  private static final double kVelocityTolerance = 2; // rotations per second
+
   private TalonFX leftMotor = new TalonFX(30);
   private TalonFX rightMotor = new TalonFX(31);
-  private DigitalInput coralSensor = new DigitalInput(0);
-  private DigitalInput homeSensor = new DigitalInput(1);
+  private final StatusSignal<Angle> leftPosition = leftMotor.getPosition();
+  private final StatusSignal<AngularVelocity> leftVelocity = leftMotor.getVelocity();
+  private final StatusSignal<Current> leftStatorCurrent = leftMotor.getStatorCurrent();
+  private TimestampedDigitalInput coralSensor = new TimestampedDigitalInput(0, true);
+  private TimestampedDigitalInput homeSensor = new TimestampedDigitalInput(1, true);
   private MotionMagicVoltage motionMagicPostionControl = new MotionMagicVoltage(0).withEnableFOC(false);
   private DutyCycleOut dutyCycleOut = new DutyCycleOut(0).withEnableFOC(false);
+  private VoltageOut sysIdVoltageOut = new VoltageOut(0).withEnableFOC(false);
   private boolean homeFound = false;
-  private boolean previousHomeSensor = isAtHome();
+  private int handledHomeSensorEdges = 0;
+  private double homeCorrection = 0;
+  private double homeCorrectionErrorBound = 0;
+  private double homeUncompensatedError = 0;
+  private SoftwareLimitSwitchConfigs softwareLimitSwitchConfigs = new SoftwareLimitSwitchConfigs();
+  private Debouncer stallDebouncer = new Debouncer(kStallSeconds, DebounceType.kRising);
+  private HomingResult homingResult = HomingResult.NOT_HOMED;
+  private double homingStartTime = 0;
+  private double homingSeconds = 0;
+  private int homingStartEdgeCount = 0;
+  private boolean stalled = false;
+  private Alert homingAlert = new Alert("", AlertType.kWarning);
+  private final TalonFXConfiguration followerConfiguration = new TalonFXConfiguration();
+  private final Follower followerControl = new Follower(leftMotor.getDeviceID(), false);
+  private int followerResends = 0;
+  private double targetPosition = Double.NaN;
+  private boolean homing = false;
+  // NaN when no move is being timed
+  private double moveStartTime = Double.NaN;
+  private double lastMoveSeconds = 0;
+  private int moveCount = 0;
+
+  /*
+   * SysId routine for characterizing the elevator. This is used to find kS, kV,
+   * kA and kG for the Motion Magic feedforward. Positions and voltages come from
+   * the left motor's signals in the SignalLogger log.
+   */
+  private final SysIdRoutine sysIdRoutine = new SysIdRoutine(
+      new SysIdRoutine.Config(
+          null, // Use default ramp rate (1 V/s)
+          Volts.of(4), // Keep the dynamic step short of the travel
+          null, // Use default timeout (10 s)
+          // Log state with SignalLogger class
+          state -> SignalLogger.writeString("SysIdElevator_State", state.toString())),
+      new SysIdRoutine.Mechanism(
+          output -> {
+            clearTarget();
+            leftMotor.setControl(sysIdVoltageOut.withOutput(output));
+          },
+          null,
+          this));
 
   private final boolean tuningModeEnabled = true;
   private final boolean healthCheckEnabled = true;
@@ -84,11 +181,10 @@ public class Elevator extends SubsystemBase {
         .withKD(0);
 
     MotionMagicConfigs motionMagicConfigs = new MotionMagicConfigs()
-        .withMotionMagicCruiseVelocity(RotationsPerSecond.of(75))
-        .withMotionMagicAcceleration(RotationsPerSecondPerSecond.of(150))
-        .withMotionMagicJerk(RotationsPerSecondPerSecond.per(Second).of(0));
+        .withMotionMagicCruiseVelocity(RotationsPerSecond.of(kCruiseVelocity))
+        .withMotionMagicAcceleration(RotationsPerSecondPerSecond.of(kAcceleration))
+        .withMotionMagicJerk(RotationsPerSecondPerSecond.per(Second).of(kJerk));
 
-    SoftwareLimitSwitchConfigs softwareLimitSwitchConfigs = new SoftwareLimitSwitchConfigs();
     softwareLimitSwitchConfigs.ForwardSoftLimitEnable = true;
     softwareLimitSwitchConfigs.ForwardSoftLimitThreshold = Position.PEAK.rotations;
     softwareLimitSwitchConfigs.ReverseSoftLimitEnable = true;
@@ -114,12 +210,17 @@ public class Elevator extends SubsystemBase {
     talonFXConfiguration.MotorOutput = motorOutputConfigs;
     talonFXConfiguration.Voltage = voltageConfigs;
 
+    // The follower only mirrors output, so it gets no soft limits or gains of its
+    // own. Limits on it would trip against its own position, which is never re-homed.
+    followerConfiguration.CurrentLimits = currentLimitsConfigs;
+    followerConfiguration.MotorOutput = motorOutputConfigs;
+    followerConfiguration.Voltage = voltageConfigs;
+
     leftMotor.getConfigurator().apply(talonFXConfiguration);
-    rightMotor.getConfigurator().apply(talonFXConfiguration);
+    configureFollower();
 
     if (tuningModeEnabled) {
-      tunableTalonFX = new TunableTalonFX(getName(), "Left + right motors", SlotConfigs.from(positionPIDConfigs), leftMotor,
-          rightMotor);
+      tunableTalonFX = new TunableTalonFX(getName(), "Left motor", SlotConfigs.from(positionPIDConfigs), leftMotor);
     }
 
     if (healthCheckEnabled) {
@@ -128,8 +229,34 @@ public class Elevator extends SubsystemBase {
     }
   }
 
-  public Command cmdManualHome() {
-    return cmdSetDutyCycleOut(-0.05).until(() -> homeFound);
+  /**
+   * Home the elevator. Moves at full profile speed to just above where the
+   * sensor should be, then creeps down onto the sensor edge. If the sensor
+   * never trips, the creep continues with the reverse soft limit off until the
+   * carriage stalls on the hard stop, which is taken as the bottom.
+   */
+  public Command cmdHome() {
+    return Commands.sequence(
+        Commands.runOnce(() -> startHoming()),
+        new FunctionalCommand(
+            () -> {
+            },
+            () -> setPosition(Position.SENSOR.rotations + kHomingSlowZone),
+            interrupted -> {
+            },
+            () -> hasHomeEdgeSinceHomingStart()
+                || isSettledAtPosition(Position.SENSOR.rotations + kHomingSlowZone),
+            this),
+        Commands.runOnce(() -> setReverseSoftLimitEnabled(false)),
+        new FunctionalCommand(
+            () -> stallDebouncer.calculate(false),
+            () -> setDutyCycleOut(kHomingCreepOutput),
+            interrupted -> {
+            },
+            () -> hasHomeEdgeSinceHomingStart() || stalled,
+            this))
+        .withTimeout(kHomingTimeoutSeconds)
+        .finallyDo(interrupted -> finishHoming(interrupted));
   }
 
   public Command cmdSetPosition(Position position) {
@@ -139,7 +266,7 @@ public class Elevator extends SubsystemBase {
         () -> setPosition(position.rotations),
         interrupted -> {
         },
-        () -> isNearPosition(position.rotations),
+        () -> isSettledAtPosition(position.rotations),
         this);
   }
 
@@ -149,10 +276,45 @@ public class Elevator extends SubsystemBase {
         },
         () -> setPosition(position),
         interrupted -> stopMotors(),
-        () -> isNearPosition(position),
+        () -> isSettledAtPosition(position),
         this);
   }
 
+  /**
+   * Physics model driving both motors' sim state and the home sensor.
+   */
+  public ElevatorSimulation createSimulation() {
+    return new ElevatorSimulation(leftMotor, rightMotor, homeSensor.getChannel(), Position.SENSOR.rotations,
+        Position.PEAK.rotations);
+  }
+
+  /**
+   * Runs the SysId quasistatic test in the given direction. Stops short of the
+   * soft limits so the log doesn't pick up the motor being held at the limit.
+   */
+  public Command sysIdQuasistatic(SysIdRoutine.Direction direction) {
+    return withSignalLogger(sysIdRoutine.quasistatic(direction).until(() -> isNearSysIdLimit(direction)));
+  }
+
+  /**
+   * Runs the SysId dynamic test in the given direction. Stops short of the soft
+   * limits so the log doesn't pick up the motor being held at the limit.
+   */
+  public Command sysIdDynamic(SysIdRoutine.Direction direction) {
+    return withSignalLogger(sysIdRoutine.dynamic(direction).until(() -> isNearSysIdLimit(direction)));
+  }
+
+  /**
+   * SignalLogger only runs on its own with an FMS, so start it for a test and
+   * stop it after. Each test ends up in its own hoot file, the gain fitter
+   * takes them all.
+   */
+  private Command withSignalLogger(Command test) {
+    return test
+        .beforeStarting(() -> SignalLogger.start())
+        .finallyDo(() -> SignalLogger.stop());
+  }
+
   public Command cmdSetDutyCycleOut(double output) {
     return Commands.runEnd(
         () -> setDutyCycleOut(output),
@@ -166,14 +328,25 @@ public class Elevator extends SubsystemBase {
 
   @Override
   public void periodic() {
+    BaseStatusSignal.refreshAll(leftPosition, leftVelocity, leftStatorCurrent);
+    // A power cycle or brownout on either motor drops the follow, set it up again
+    if (rightMotor.hasResetOccurred() | leftMotor.hasResetOccurred()) {
+      configureFollower();
+      followerResends++;
+    }
     detectSensorTransition();
+    updateMoveTiming();
+    stalled = stallDebouncer.calculate(
+        Math.abs(leftStatorCurrent.getValueAsDouble()) > kStallCurrent
+            && Math.abs(getLeftMotorVelocity()) < kStallVelocity);
 
     if (tuningModeEnabled) {
       tunableTalonFX.updateValuesFromSmartNT();
     }
 
     if (healthCheckEnabled) {
-      if (!leftMotorCheck.isDeviceHealthy() || !rightMotorCheck.isDeviceHealthy()) {
+      if (!leftMotorCheck.isDeviceHealthy() || !rightMotorCheck.isDeviceHealthy()
+          || homingResult == HomingResult.STALL || homingResult == HomingResult.FAILED) {
         healthStatus = HealthStatus.ERROR;
       } else {
         healthStatus = HealthStatus.IS_OK;
@@ -182,11 +355,131 @@ public class Elevator extends SubsystemBase {
   }
 
   private void detectSensorTransition() {
-    if ( previousHomeSensor != isAtHome()) {
+    // Edges are captured by interrupt, so one that comes and goes between loops still counts
+    int homeSensorEdges = homeSensor.getEdgeCount();
+    if (homeSensorEdges != handledHomeSensorEdges) {
+      handledHomeSensorEdges = homeSensorEdges;
+      homeFound = true;
+      rehomeAtEdge(homeSensor.getLastEdgeTimestamp());
+    }
+  }
+
+  /**
+   * Re-zero against the home sensor using where the elevator was at the moment
+   * of the edge rather than where it is now. Phoenix's latency compensation
+   * gives the position now from the last status frame, and the position at the
+   * edge is that less the distance covered since the edge at the frame's
+   * velocity.
+   * <p>
+   * Error model, rotations: constant velocity is assumed between the edge and
+   * the frame, so the result is off by at most a * dt^2 / 2 over that gap, and
+   * the elevator keeps moving v * latency while setPosition is in flight.
+   * Re-zeroing to the sensor position directly is instead off by the whole
+   * distance travelled since the edge, v * (now - edge).
+   *
+   * @param edgeTimestamp FPGA timestamp of the sensor edge in seconds
+   */
+  private void rehomeAtEdge(double edgeTimestamp) {
+    double sampleTime = leftPosition.getTimestamp().getTime();
+    double velocity = leftVelocity.getValueAsDouble();
+    double edgeTime = Utils.fpgaToCurrentTime(edgeTimestamp);
+    double now = Utils.getCurrentTimeSeconds();
+    double positionNow = BaseStatusSignal.getLatencyCompensatedValueAsDouble(leftPosition, leftVelocity);
+
+    homeCorrection = computeHomeCorrection(positionNow, velocity, now - edgeTime);
+    resetMotorPositionToPosition(positionNow + homeCorrection);
+
+    double extrapolationTime = Math.abs(edgeTime - sampleTime);
+    homeCorrectionErrorBound = 0.5 * kAcceleration * extrapolationTime * extrapolationTime
+        + Math.abs(velocity) * kSetPositionLatencySeconds;
+    homeUncompensatedError = Math.abs(velocity) * (now - edgeTime);
+  }
+
+  /**
+   * Offset that makes the motor read the sensor position at the edge.
+   *
+   * @param positionNow      Latency compensated motor position
+   * @param velocity         Motor velocity, assumed constant since the edge
+   * @param secondsSinceEdge Time from the sensor edge to positionNow
+   */
+  static double computeHomeCorrection(double positionNow, double velocity, double secondsSinceEdge) {
+    double positionAtEdge = positionNow - velocity * secondsSinceEdge;
+    return Position.SENSOR.rotations - positionAtEdge;
+  }
+
+  private void startHoming() {
+    homing = true;
+    homingStartTime = Timer.getFPGATimestamp();
+    homingStartEdgeCount = homeSensor.getEdgeCount();
+    homingResult = HomingResult.NOT_HOMED;
+    homingAlert.set(false);
+  }
+
+  private boolean hasHomeEdgeSinceHomingStart() {
+    return homeSensor.getEdgeCount() != homingStartEdgeCount;
+  }
+
+  /**
+   * @param interrupted True if another command took the elevator, the timeout
+   *                    running out is not an interruption
+   */
+  private void finishHoming(boolean interrupted) {
+    homingSeconds = Timer.getFPGATimestamp() - homingStartTime;
+    homing = false;
+
+    if (hasHomeEdgeSinceHomingStart()) {
+      homingResult = HomingResult.SENSOR;
+    } else if (stalled) {
+      homingResult = HomingResult.STALL;
       homeFound = true;
-      resetMotorPositionToPosition(Position.SENSOR.rotations);
+      resetMotorPositionToPosition(Position.STARTING_CONFIGURATION.rotations);
+      homingAlert.setText(String.format("[%s] Home sensor not seen, homed on stall current. Check DIO 1.", getName()));
+      homingAlert.set(true);
+    } else if (interrupted) {
+      // Cut short by the driver, not a fault, so only say the elevator is not homed
+      homingResult = HomingResult.INTERRUPTED;
+      homingAlert.setText(String.format("[%s] Homing interrupted before the sensor was found.", getName()));
+      homingAlert.set(true);
+    } else {
+      homingResult = HomingResult.FAILED;
+      homingAlert.setText(String.format("[%s] Homing failed, no sensor edge or stall.", getName()));
+      homingAlert.set(true);
     }
-    previousHomeSensor = isAtHome();
+
+    setReverseSoftLimitEnabled(true);
+    holdPosition();
+    DataLogManager.log(String.format("%s: homing %s in %.2f s", getName(), homingResult, homingSeconds));
+  }
+
+  private void setReverseSoftLimitEnabled(boolean enabled) {
+    // Only the leader has soft limits, the follower's config leaves them off
+    softwareLimitSwitchConfigs.ReverseSoftLimitEnable = enabled;
+    leftMotor.getConfigurator().apply(softwareLimitSwitchConfigs);
+  }
+
+  @Logged(name = "Homing result")
+  public HomingResult getHomingResult() {
+    return homingResult;
+  }
+
+  @Logged(name = "Homing seconds")
+  public double getHomingSeconds() {
+    return homingSeconds;
+  }
+
+  @Logged(name = "Home correction")
+  public double getHomeCorrection() {
+    return homeCorrection;
+  }
+
+  @Logged(name = "Home correction error bound")
+  public double getHomeCorrectionErrorBound() {
+    return homeCorrectionErrorBound;
+  }
+
+  @Logged(name = "Home uncompensated error")
+  public double getHomeUncompensatedError() {
+    return homeUncompensatedError;
   }
 
   @Logged(name = "Home found")
@@ -196,36 +489,84 @@ public class Elevator extends SubsystemBase {
 
   @Logged(name = "Has coral")
   public boolean hasCoralInChute() {
-    return !coralSensor.get();
-  }
-
-  @Logged(name = "Right rotations")
-  public double getRightMotorPosition() {
-    return rightMotor.getPosition().getValueAsDouble();
+    return coralSensor.isActive();
   }
 
   @Logged(name = "Left rotations")
   public double getLeftMotorPosition() {
-    return leftMotor.getPosition().getValueAsDouble();
+    return leftPosition.getValueAsDouble();
   }
 
-@Logged(name = "Left Velocity")
-public double getLeftMotorVelocity() {
-  return leftMotor.getVelocity().getValueAsDouble();
-}
+  @Logged(name = "Left Velocity")
+  public double getLeftMotorVelocity() {
+    return leftVelocity.getValueAsDouble();
+  }
 
-@Logged (name = "Right Velocity") 
-public double getRightMotorVelocity() {
-  return rightMotor.getVelocity().getValueAsDouble();
-}
+  /**
+   * Time from commanding a new position to settling there, for the last move
+   * that finished. Moves while homing are not counted.
+   */
+  @Logged(name = "Last move seconds")
+  public double getLastMoveSeconds() {
+    return lastMoveSeconds;
+  }
+
+  @Logged(name = "Move count")
+  public int getMoveCount() {
+    return moveCount;
+  }
+
+  @Logged(name = "Follower resends")
+  public int getFollowerResends() {
+    return followerResends;
+  }
 
   @Logged(name = "Health status")
   public HealthStatus getHealthStatus() {
     return healthStatus;
   }
 
+  /**
+   * Predicted time for the Motion Magic profile to reach a position from the
+   * current position and velocity.
+   */
+  public double estimateTimeToPosition(double position) {
+    return estimateProfileTime(new TrapezoidProfile.State(getLeftMotorPosition(), getLeftMotorVelocity()), position);
+  }
+
+  public double estimateTimeToPosition(Position position) {
+    return estimateTimeToPosition(position.rotations);
+  }
+
+  /**
+   * Predicted time for a move between two positions starting at rest.
+   */
+  public static double estimateMoveTime(double fromPosition, double toPosition) {
+    return estimateProfileTime(new TrapezoidProfile.State(fromPosition, 0), toPosition);
+  }
+
+  public static double estimateMoveTime(Position from, Position to) {
+    return estimateMoveTime(from.rotations, to.rotations);
+  }
+
+  @Logged(name = "Time to target")
+  public double getTimeToTarget() {
+    if (Double.isNaN(targetPosition)) {
+      return 0;
+    }
+    return estimateTimeToPosition(targetPosition);
+  }
+
+  public boolean isSettledAtPosition(double position) {
+    return isNearPosition(position) && Math.abs(getLeftMotorVelocity()) < kVelocityTolerance;
+  }
+
+  public boolean isSettledAtPosition(Position position) {
+    return isSettledAtPosition(position.rotations);
+  }
+
   public boolean isAbovePosition(Position position) {
-    return position.rotations < getLeftMotorPosition() || position.rotations < getRightMotorPosition();
+    return position.rotations < getLeftMotorPosition();
   }
 
   public boolean isNearCoralScoringPosition() {
@@ -246,13 +587,18 @@ public double getRightMotorVelocity() {
 
   @Logged(name = "Home")
   public boolean isAtHome() {
-    return !homeSensor.get();
+    return homeSensor.isActive();
   }
 
   private void setPosition(double position) {
+    // Time each move to a new target, not the same target set again every loop
+    boolean newTarget = Double.isNaN(targetPosition) || Math.abs(position - targetPosition) > kPositionTolerance;
+    if (newTarget) {
+      moveStartTime = homing || isNearPosition(position) ? Double.NaN : Timer.getFPGATimestamp();
+    }
+    targetPosition = position;
     motionMagicPostionControl.Position = position;
     leftMotor.setControl(motionMagicPostionControl);
-    rightMotor.setControl(motionMagicPostionControl);
   }
 
   private void holdPosition() {
@@ -260,29 +606,65 @@ public double getRightMotorVelocity() {
   }
 
   private void setDutyCycleOut(double output) {
+    clearTarget();
     dutyCycleOut.Output = output;
     leftMotor.setControl(dutyCycleOut);
-    rightMotor.setControl(dutyCycleOut);
   }
 
   private void stopMotors() {
+    clearTarget();
     leftMotor.stopMotor();
-    rightMotor.stopMotor();
+  }
+
+  private void clearTarget() {
+    targetPosition = Double.NaN;
+    moveStartTime = Double.NaN;
+  }
+
+  private void updateMoveTiming() {
+    if (!Double.isNaN(moveStartTime) && isSettledAtPosition(targetPosition)) {
+      lastMoveSeconds = Timer.getFPGATimestamp() - moveStartTime;
+      moveCount++;
+      moveStartTime = Double.NaN;
+    }
+  }
+
+  private boolean isNearSysIdLimit(SysIdRoutine.Direction direction) {
+    if (direction == SysIdRoutine.Direction.kForward) {
+      return getLeftMotorPosition() >= Position.PEAK.rotations - kSysIdLimitMargin;
+    }
+    return getLeftMotorPosition() <= Position.STARTING_CONFIGURATION.rotations + kSysIdLimitMargin;
   }
 
   private void resetMotorPositionToPosition(double rotations) {
     leftMotor.setPosition(rotations);
+    // Not used for control, kept in step so the follower's logged position matches
     rightMotor.setPosition(rotations);
   }
 
+  /**
+   * Right motor mirrors the left motor's output, only the left motor is ever
+   * commanded.
+   */
+  private void configureFollower() {
+    rightMotor.getConfigurator().apply(followerConfiguration);
+    rightMotor.setControl(followerControl);
+  }
+
   private boolean isNearPosition(double position) {
-    return MathUtil.isNear(position, getLeftMotorPosition(), 0.5)
-        || MathUtil.isNear(position, getRightMotorPosition(), 0.5);
+    return MathUtil.isNear(position, getLeftMotorPosition(), kPositionTolerance);
   }
 
   private boolean isNearPosition(Position position) {
     return isNearPosition(position.rotations);
   }
 
+  private static double estimateProfileTime(TrapezoidProfile.State current, double position) {
+    TrapezoidProfile motionProfile = new TrapezoidProfile(kProfileConstraints);
+    motionProfile.calculate(0, current, new TrapezoidProfile.State(position, 0));
+    // With jerk limiting each acceleration ramp stretches by roughly a / j
+    return motionProfile.totalTime() + (kJerk > 0 ? kAcceleration / kJerk : 0);
+  }
+
 
 }
@@ -4,22 +4,33 @@
 
 package frc.robot.subsystem;
 
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.configs.Slot0Configs;
+import com.ctre.phoenix6.configs.Slot1Configs;
 import com.ctre.phoenix6.configs.TalonFXConfiguration;
 import com.ctre.phoenix6.controls.DutyCycleOut;
 import com.ctre.phoenix6.controls.PositionVoltage;
+import com.ctre.phoenix6.controls.VelocityVoltage;
 import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.InvertedValue;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import edu.wpi.first.epilogue.Logged;
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.math.filter.Debouncer;
+import edu.wpi.first.math.filter.Debouncer.DebounceType;
+import edu.wpi.first.units.measure.AngularVelocity;
+import edu.wpi.first.units.measure.Current;
 import edu.wpi.first.wpilibj.Servo;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.FunctionalCommand;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.robot.sim.CoralRollerSimulation;
+import frc.robot.util.ServoMotionModel;
+import frc.robot.util.TimestampedDigitalInput;
 
 public class EndEffector extends SubsystemBase {
 
@@ -59,17 +70,62 @@ public class EndEffector extends SubsystemBase {
     public final static double RIGHT = TURE_CENTER + NINTY_DEGREE_OFFSET;
   }
 
+  // Servo pulse bounds and speed, 270 degrees over 500 - 2500 us at 0.14 s / 60 degrees,
+  // derated for load
+  private static final int kServoMaxPulseMicroseconds = 2500;
+  private static final int kServoCenterPulseMicroseconds = 1500;
+  private static final int kServoMinPulseMicroseconds = 500;
+  private static final double kServoDegreesPerMicrosecond = 270.0 / 2000.0;
+  private static final double kServoSecondsPer60Degrees = 0.14 * 1.2;
+
+  // Coral eject, run at speed until the coral clears the sensor then a little further
+  private static final double kEjectVelocity = 40; // rotations per second
+  private static final double kEjectOverrunRotations = 2;
+  private static final double kEjectTimeoutSeconds = 1;
+
+  // Coral intake, run at speed until the coral seats against the stop, seen as a
+  // current spike with the roller stopped and the beam broken, or has gone far
+  // enough past the beam. Spin up inrush is over the current threshold too, but
+  // the roller is turning by the end of it.
+  private static final double kIntakeVelocity = 20; // rotations per second
+  private static final double kSeatedCurrent = 15; // stator amps
+  private static final double kSeatedVelocity = 5; // rotations per second
+  // Spin up from rest looks like a stall, ignore the current for this long
+  private static final double kIntakeSpinUpSeconds = 0.15;
+  private static final double kSeatedDebounceSeconds = 0.04;
+  private static final double kIntakeMaxRotationsPastSensor = 5;
+  private static final double kIntakeTimeoutSeconds = 2;
+
   private TalonFX algaeMotor = new TalonFX(21);
   private DutyCycleOut algaeDutyCycleOut = new DutyCycleOut(0);
-  private DigitalInput algaeSensor = new DigitalInput(4);
+  private TimestampedDigitalInput algaeSensor = new TimestampedDigitalInput(4, true);
   private Servo algaeIntakeArm = new Servo(1);
+  private ServoMotionModel algaeIntakeArmModel = new ServoMotionModel(kServoMaxPulseMicroseconds,
+      kServoMinPulseMicroseconds, kServoDegreesPerMicrosecond, kServoSecondsPer60Degrees);
 
   private TalonFX coralMotor = new TalonFX(20);
   private DutyCycleOut coralDutyCycleOut = new DutyCycleOut(0);
   private PositionVoltage coralPositionControl = new PositionVoltage(0);
-  private DigitalInput coralSensor = new DigitalInput(3);
+  private VelocityVoltage coralVelocityControl = new VelocityVoltage(0).withSlot(1);
+  private StatusSignal<Current> coralStatorCurrent = coralMotor.getStatorCurrent();
+  private StatusSignal<AngularVelocity> coralVelocity = coralMotor.getVelocity();
+  private TimestampedDigitalInput coralSensor = new TimestampedDigitalInput(3, true);
   private Servo headRotate = new Servo(0);
+  private ServoMotionModel headRotateModel = new ServoMotionModel(kServoMaxPulseMicroseconds,
+      kServoMinPulseMicroseconds, kServoDegreesPerMicrosecond, kServoSecondsPer60Degrees);
   private double currentPosition = 0;
+  private boolean ejectingCoral = false;
+  private double ejectStartTime = 0;
+  private int ejectStartDeactivatedCount = 0;
+  private double ejectEndPosition = Double.NaN;
+  private double lastEjectSeconds = 0;
+  private int ejectCount = 0;
+  private Debouncer seatedDebouncer = new Debouncer(kSeatedDebounceSeconds, DebounceType.kRising);
+  private boolean coralSeated = false;
+  private double intakeStartPosition = 0;
+  private double intakeStartTime = 0;
+  private double lastIntakeLatencySeconds = 0;
+  private int intakeCount = 0;
 
   /** Creates a new EndEffector. */
   public EndEffector() {
@@ -81,8 +137,16 @@ public class EndEffector extends SubsystemBase {
         .withKD(0)
         .withKV(0);
 
+    Slot1Configs velocityPIDConfigs = new Slot1Configs()
+        .withKS(0.25)
+        .withKV(0.12)
+        .withKP(0.1)
+        .withKI(0)
+        .withKD(0);
+
     TalonFXConfiguration coralTalonConfiguration = new TalonFXConfiguration();
     coralTalonConfiguration.Slot0 = positionPIDConfigs;
+    coralTalonConfiguration.Slot1 = velocityPIDConfigs;
     coralTalonConfiguration.CurrentLimits.SupplyCurrentLimit = 25;
     coralTalonConfiguration.CurrentLimits.SupplyCurrentLimitEnable = true;
     coralTalonConfiguration.MotorOutput.NeutralMode = NeutralModeValue.Brake;
@@ -96,8 +160,10 @@ public class EndEffector extends SubsystemBase {
     algaeTalonConfiguration.MotorOutput.Inverted = InvertedValue.Clockwise_Positive;
     algaeMotor.getConfigurator().apply(algaeTalonConfiguration);
 
-    headRotate.setBoundsMicroseconds(2500, 1500, 1500, 1500, 500);
-    algaeIntakeArm.setBoundsMicroseconds(2500, 1500, 1500, 1500, 500);
+    headRotate.setBoundsMicroseconds(kServoMaxPulseMicroseconds, kServoCenterPulseMicroseconds,
+        kServoCenterPulseMicroseconds, kServoCenterPulseMicroseconds, kServoMinPulseMicroseconds);
+    algaeIntakeArm.setBoundsMicroseconds(kServoMaxPulseMicroseconds, kServoCenterPulseMicroseconds,
+        kServoCenterPulseMicroseconds, kServoCenterPulseMicroseconds, kServoMinPulseMicroseconds);
     
     setAlgaeIntakePostion(AlgaeServoPosition.HOME);
   }
@@ -125,6 +191,46 @@ public class EndEffector extends SubsystemBase {
         this);
   }
 
+  /**
+   * Pull a coral in at speed once it breaks the beam and stop the moment it
+   * seats, then hold it there.
+   */
+  public Command cmdIntakeCoral() {
+    return new FunctionalCommand(
+        () -> startIntake(),
+        () -> {
+          setCoralVelocity(kIntakeVelocity);
+          updateCoralSeated();
+        },
+        interrupted -> finishIntake(),
+        () -> coralSeated,
+        this)
+        .withTimeout(kIntakeTimeoutSeconds);
+  }
+
+  public Command cmdEjectCoral() {
+    return cmdEjectCoral(kEjectOverrunRotations);
+  }
+
+  /**
+   * Spin the coral out at speed and stop once it has cleared the coral sensor
+   * plus an overrun, instead of a fixed number of rotations.
+   *
+   * @param overrunRotations Rotations to keep spinning after the sensor clears
+   */
+  public Command cmdEjectCoral(double overrunRotations) {
+    return new FunctionalCommand(
+        () -> startEject(),
+        () -> {
+          setCoralVelocity(kEjectVelocity);
+          updateEjectEndPosition(overrunRotations);
+        },
+        interrupted -> finishEject(),
+        () -> !Double.isNaN(ejectEndPosition) && getCoralMotorPosition() >= ejectEndPosition,
+        this)
+        .withTimeout(kEjectTimeoutSeconds);
+  }
+
   public Command cmdSetCoralDutyCycleOut(double output) {
     return Commands.runEnd(
         () -> setCoralDutyCycleOut(output),
@@ -133,7 +239,14 @@ public class EndEffector extends SubsystemBase {
   }
 
   public Command cmdSetHeadRotation(double value) {
-    return Commands.runOnce(() -> setHeadPosition(value), this);
+    return new FunctionalCommand(
+        () -> setHeadPosition(value),
+        () -> {
+        },
+        interrupted -> {
+        },
+        () -> headRotateModel.isAtTarget(),
+        this);
   }
 
   public Command cmdBumpHead(boolean moveRight) {
@@ -164,7 +277,14 @@ public class EndEffector extends SubsystemBase {
   }
 
   public Command cmdSetAlgaeIntakePostion(AlgaeServoPosition value) {
-    return Commands.runOnce(() -> setAlgaeIntakePostion(value), this);
+    return new FunctionalCommand(
+        () -> setAlgaeIntakePostion(value),
+        () -> {
+        },
+        interrupted -> {
+        },
+        () -> algaeIntakeArmModel.isAtTarget(),
+        this);
   }
 
   public Command cmdBumpAlgaeIntake(boolean moveRight) {
@@ -183,18 +303,55 @@ public class EndEffector extends SubsystemBase {
     }
   }
 
+  /**
+   * Physics model of the coral roller, seating against the stop.
+   */
+  public CoralRollerSimulation createSimulation() {
+    return new CoralRollerSimulation(coralMotor, coralSensor.getChannel());
+  }
+
   @Override
   public void periodic() {
   }
 
   @Logged(name = "Has coral")
   public boolean hasCoral() {
-    return !coralSensor.get();
+    return coralSensor.isActive();
+  }
+
+  @Logged(name = "Coral seated")
+  public boolean isCoralSeated() {
+    return coralSeated;
+  }
+
+  @Logged(name = "Last intake latency seconds")
+  public double getLastIntakeLatencySeconds() {
+    return lastIntakeLatencySeconds;
+  }
+
+  @Logged(name = "Intake count")
+  public int getIntakeCount() {
+    return intakeCount;
+  }
+
+  @Logged(name = "Ejecting coral")
+  public boolean isEjectingCoral() {
+    return ejectingCoral;
+  }
+
+  @Logged(name = "Last eject seconds")
+  public double getLastEjectSeconds() {
+    return lastEjectSeconds;
+  }
+
+  @Logged(name = "Eject count")
+  public int getEjectCount() {
+    return ejectCount;
   }
 
   @Logged(name = "Has algae")
   public boolean hasAlgae() {
-    return !algaeSensor.get();
+    return algaeSensor.isActive();
   }
 
   @Logged(name = "Algae intake position")
@@ -202,11 +359,41 @@ public class EndEffector extends SubsystemBase {
     return algaeIntakeArm.getPosition();
   }
 
+  /**
+   * Where the algae intake arm is estimated to be, the servo gives no feedback
+   * so a commanded position is not reached until the model says so.
+   */
+  @Logged(name = "Algae intake estimated position")
+  public double getAlgaeIntakeArmEstimatedPosition() {
+    return algaeIntakeArmModel.getEstimatedPosition();
+  }
+
+  public boolean isAlgaeIntakeArmAtTarget() {
+    return algaeIntakeArmModel.isAtTarget();
+  }
+
   @Logged(name = "Head rotate position")
   public double getHeadPosition() {
     return headRotate.getPosition();
   }
 
+  @Logged(name = "Head time to arrival")
+  public double getHeadTimeToArrival() {
+    return headRotateModel.getTimeToArrival();
+  }
+
+  @Logged(name = "Algae intake time to arrival")
+  public double getAlgaeIntakeArmTimeToArrival() {
+    return algaeIntakeArmModel.getTimeToArrival();
+  }
+
+  /**
+   * Estimated time for the algae intake arm to travel between two positions.
+   */
+  public double estimateAlgaeIntakeArmTravelTime(AlgaeServoPosition from, AlgaeServoPosition to) {
+    return algaeIntakeArmModel.estimateTravelTime(from.value, to.value);
+  }
+
   @Logged(name = "Coral motor rotations")
   public double getCoralMotorPosition() {
     return coralMotor.getPosition().getValueAsDouble();
@@ -220,6 +407,67 @@ public class EndEffector extends SubsystemBase {
     coralMotor.setControl(coralDutyCycleOut.withOutput(output));
   }
 
+  private void setCoralVelocity(double velocity) {
+    coralMotor.setControl(coralVelocityControl.withVelocity(velocity));
+  }
+
+  private void startIntake() {
+    coralSeated = false;
+    intakeStartPosition = getCoralMotorPosition();
+    intakeStartTime = Timer.getFPGATimestamp();
+    seatedDebouncer.calculate(false);
+  }
+
+  private void updateCoralSeated() {
+    BaseStatusSignal.refreshAll(coralStatorCurrent, coralVelocity);
+    boolean spinningUp = Timer.getFPGATimestamp() - intakeStartTime < kIntakeSpinUpSeconds;
+    boolean stalledOnStop = seatedDebouncer.calculate(
+        hasCoral() && !spinningUp
+            && Math.abs(coralStatorCurrent.getValueAsDouble()) > kSeatedCurrent
+            && Math.abs(coralVelocity.getValueAsDouble()) < kSeatedVelocity);
+    boolean pastSensor = hasCoral()
+        && getCoralMotorPosition() - intakeStartPosition >= kIntakeMaxRotationsPastSensor;
+    coralSeated = stalledOnStop || pastSensor;
+  }
+
+  private void finishIntake() {
+    if (!coralSeated) {
+      stopCoralMotor();
+      return;
+    }
+    // Brake where it seated instead of coasting down
+    setCoralPosition(getCoralMotorPosition());
+    lastIntakeLatencySeconds = Timer.getFPGATimestamp() - coralSensor.getLastActivatedTimestamp();
+    intakeCount++;
+  }
+
+  private void startEject() {
+    coralSeated = false;
+    ejectingCoral = true;
+    ejectStartTime = Timer.getFPGATimestamp();
+    ejectStartDeactivatedCount = coralSensor.getDeactivatedCount();
+    ejectEndPosition = Double.NaN;
+  }
+
+  private void updateEjectEndPosition(double overrunRotations) {
+    if (!Double.isNaN(ejectEndPosition) || coralSensor.getDeactivatedCount() == ejectStartDeactivatedCount) {
+      return;
+    }
+    // Count the overrun from when the coral actually cleared, not when this loop saw it
+    double sinceEdge = Math.max(0, Timer.getFPGATimestamp() - coralSensor.getLastDeactivatedTimestamp());
+    double positionAtEdge = getCoralMotorPosition() - coralMotor.getVelocity().getValueAsDouble() * sinceEdge;
+    ejectEndPosition = positionAtEdge + overrunRotations;
+  }
+
+  private void finishEject() {
+    stopCoralMotor();
+    ejectingCoral = false;
+    lastEjectSeconds = Timer.getFPGATimestamp() - ejectStartTime;
+    if (!Double.isNaN(ejectEndPosition)) {
+      ejectCount++;
+    }
+  }
+
   private void setCoralPosition(double position) {
     coralMotor.setControl(coralPositionControl.withPosition(position));
   }
@@ -230,6 +478,7 @@ public class EndEffector extends SubsystemBase {
 
   private void setHeadPosition(double position) {
     headRotate.setPosition(position);
+    headRotateModel.setTarget(headRotate.getPosition());
   }
 
   private void stopAlgaeMotor() {
@@ -242,6 +491,7 @@ public class EndEffector extends SubsystemBase {
 
   private void setAlgaeIntakePostion(double position) {
     algaeIntakeArm.setPosition(position);
+    algaeIntakeArmModel.setTarget(algaeIntakeArm.getPosition());
   }
 
   private void setAlgaeIntakePostion(AlgaeServoPosition position) {
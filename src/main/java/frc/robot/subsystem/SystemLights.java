@@ -4,20 +4,82 @@
 
 package frc.robot.subsystem;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
 import com.ctre.phoenix.led.Animation;
 import com.ctre.phoenix.led.CANdle;
 import com.ctre.phoenix.led.CANdle.LEDStripType;
 import com.ctre.phoenix.led.CANdle.VBatOutputMode;
 import com.ctre.phoenix.led.CANdleConfiguration;
 
+import edu.wpi.first.epilogue.Logged;
 import edu.wpi.first.math.MathUtil;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.Commands;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+/**
+ * Status lights on the CANdle, composited from layers. Each layer holds
+ * statuses that light a segment of the strip while their condition is true,
+ * and higher layers paint over lower ones. Statuses are checked in periodic,
+ * so nothing needs a command or a requirement on this subsystem to show
+ * itself. The commands below set the base layer.
+ * <p>
+ * Every loop the layers are rendered into one frame, compared with what the
+ * CANdle is showing, and only the changed runs of LEDs are written, at most
+ * a few frames per loop. An animation takes over the whole strip until a
+ * color is set again.
+ */
 public class SystemLights extends SubsystemBase {
+  private static final int kOnboardLEDs = 8;
+  private static final int kStripLEDs = 60;
+  private static final int kLEDCount = kOnboardLEDs + kStripLEDs;
+  // Changes beyond this are written over the next loops
+  private static final int kMaxFramesPerLoop = 4;
+  private static final int kUnknown = -1;
+
+  /** Where LED writes go, the CANdle on the robot. */
+  public interface LEDOutput {
+    void setLEDs(int r, int g, int b, int w, int startIdx, int count);
 
-  private final CANdle candle = new CANdle(30, "rio");
+    void animate(Animation animation);
+
+    void clearAnimation(int animSlot);
+  }
+
+  private static class CANdleOutput implements LEDOutput {
+    private final CANdle candle = new CANdle(30, "rio");
+
+    CANdleOutput() {
+      CANdleConfiguration configAll = new CANdleConfiguration();
+      configAll.brightnessScalar = 1;
+      configAll.disableWhenLOS = true;
+      configAll.enableOptimizations = true;
+      configAll.statusLedOffWhenActive = true;
+      configAll.stripType = LEDStripType.RGB;
+      configAll.v5Enabled = true;
+      configAll.vBatOutputMode = VBatOutputMode.Off;
+      candle.configAllSettings(configAll);
+    }
+
+    @Override
+    public void setLEDs(int r, int g, int b, int w, int startIdx, int count) {
+      candle.setLEDs(r, g, b, w, startIdx, count);
+    }
+
+    @Override
+    public void animate(Animation animation) {
+      candle.animate(animation);
+    }
+
+    @Override
+    public void clearAnimation(int animSlot) {
+      candle.clearAnimation(animSlot);
+    }
+  }
 
   public enum PresetColor {
     BLACK(0, 0, 0),
@@ -27,6 +89,7 @@ public class SystemLights extends SubsystemBase {
     BLUE(0, 0, 255),
     PURPLE(157, 0, 255),
     PINK(255, 141, 161),
+    TEAL(0, 200, 170),
     KELLY_GREEN(76, 187, 23);
 
     private final int red;
@@ -40,46 +103,166 @@ public class SystemLights extends SubsystemBase {
       this.green = MathUtil.clamp(green, rgbMin, rgbMax);
       this.blue = MathUtil.clamp(blue, rgbMin, rgbMax);
     }
+
+    private int rgb() {
+      return (red << 16) | (green << 8) | blue;
+    }
+  }
+
+  /** Layers from lowest to highest priority. */
+  public enum Layer {
+    BASE,
+    ALLIANCE,
+    ALIGNMENT_READY,
+    GAME_PIECE,
+    HEALTH_ERROR
+  }
+
+  public enum Segment {
+    ALL(0, kLEDCount),
+    ONBOARD(0, kOnboardLEDs),
+    STRIP(kOnboardLEDs, kStripLEDs),
+    STRIP_LOWER(kOnboardLEDs, kStripLEDs / 2),
+    STRIP_UPPER(kOnboardLEDs + kStripLEDs / 2, kStripLEDs - kStripLEDs / 2);
+
+    private final int start;
+    private final int count;
+
+    Segment(int start, int count) {
+      this.start = start;
+      this.count = count;
+    }
+  }
+
+  private record Status(Layer layer, Segment segment, PresetColor color, BooleanSupplier isActive) {
   }
 
+  private final LEDOutput output;
+  private final List<Status> statuses = new ArrayList<>();
+  private int baseColor = PresetColor.BLACK.rgb();
+  private Animation desiredAnimation = null;
+  private Animation appliedAnimation = null;
+  private final int[] frame = new int[kLEDCount];
+  // What the CANdle is showing, unknown at boot and after an animation
+  private final int[] shown = new int[kLEDCount];
+  private int framesSent = 0;
+  private int suppressedRenders = 0;
+
   public SystemLights() {
-    CANdleConfiguration configAll = new CANdleConfiguration();
-    configAll.brightnessScalar = 1;
-    configAll.disableWhenLOS = true;
-    configAll.enableOptimizations = true;
-    configAll.statusLedOffWhenActive = true;
-    configAll.stripType = LEDStripType.RGB;
-    configAll.v5Enabled = true;
-    configAll.vBatOutputMode = VBatOutputMode.Off;
-    candle.configAllSettings(configAll);
+    this(new CANdleOutput());
+  }
+
+  /**
+   * @param output Where LED writes go, a fake one can be passed in to check
+   *               what would be sent
+   */
+  public SystemLights(LEDOutput output) {
+    this.output = output;
+    Arrays.fill(shown, kUnknown);
     setDefaultCommand(setLEDs(PresetColor.KELLY_GREEN));
   }
 
   public Command setAnimation(Animation animation) {
-    return Commands.runOnce(() -> candle.animate(animation), this);
+    return Commands.runOnce(() -> showAnimation(animation), this);
   }
 
   public Command setLEDs(PresetColor color) {
-    return Commands.runOnce(() -> {
-      candle.clearAnimation(0);
-      candle.setLEDs(color.red, color.green, color.blue);
-    }, this);
+    return Commands.runOnce(() -> showColor(color), this);
   }
 
   public Command setLEDs(int r, int g, int b) {
-    return Commands.runOnce(() -> {
-      candle.clearAnimation(0);
-      candle.setLEDs(r, g, b);
-    }, this);
+    return Commands.runOnce(() -> showColor(r, g, b), this);
   }
 
   public Command clear() {
-    return Commands
-        .runOnce(() -> candle.setLEDs(PresetColor.BLACK.red, PresetColor.BLACK.green, PresetColor.BLACK.blue), this);
+    return Commands.runOnce(() -> showColor(PresetColor.BLACK), this);
+  }
+
+  /**
+   * Light a segment while a condition is true, checked every loop. Within a
+   * layer, statuses added later paint over earlier ones.
+   */
+  public void addStatus(Layer layer, Segment segment, PresetColor color, BooleanSupplier isActive) {
+    statuses.add(new Status(layer, segment, color, isActive));
+  }
+
+  /** Set the base layer color, safe to call every loop. */
+  public void showColor(PresetColor color) {
+    showColor(color.red, color.green, color.blue);
+  }
+
+  public void showColor(int r, int g, int b) {
+    baseColor = (MathUtil.clamp(r, 0, 255) << 16) | (MathUtil.clamp(g, 0, 255) << 8) | MathUtil.clamp(b, 0, 255);
+    desiredAnimation = null;
+  }
+
+  public void showAnimation(Animation animation) {
+    desiredAnimation = animation;
+  }
+
+  @Logged(name = "Frames sent")
+  public int getFramesSent() {
+    return framesSent;
+  }
+
+  @Logged(name = "Suppressed renders")
+  public int getSuppressedRenders() {
+    return suppressedRenders;
   }
 
   @Override
   public void periodic() {
-    // This method will be called once per scheduler run
+    if (desiredAnimation != null) {
+      if (desiredAnimation != appliedAnimation) {
+        output.animate(desiredAnimation);
+        framesSent++;
+        appliedAnimation = desiredAnimation;
+        Arrays.fill(shown, kUnknown);
+      }
+      return;
+    }
+    if (appliedAnimation != null) {
+      // An animation keeps overwriting the strip until it is cleared
+      output.clearAnimation(0);
+      framesSent++;
+      appliedAnimation = null;
+    }
+
+    render();
+    int frames = 0;
+    int index = 0;
+    while (index < kLEDCount && frames < kMaxFramesPerLoop) {
+      if (frame[index] == shown[index]) {
+        index++;
+        continue;
+      }
+      // Carry the run through LEDs of the same color, changed or not
+      int color = frame[index];
+      int end = index + 1;
+      while (end < kLEDCount && frame[end] == color) {
+        end++;
+      }
+      output.setLEDs((color >> 16) & 0xFF, (color >> 8) & 0xFF, color & 0xFF, 0, index, end - index);
+      Arrays.fill(shown, index, end, color);
+      frames++;
+      index = end;
+    }
+
+    framesSent += frames;
+    if (frames == 0) {
+      suppressedRenders++;
+    }
+  }
+
+  private void render() {
+    Arrays.fill(frame, baseColor);
+    for (Layer layer : Layer.values()) {
+      for (Status status : statuses) {
+        if (status.layer() == layer && status.isActive().getAsBoolean()) {
+          Arrays.fill(frame, status.segment().start, status.segment().start + status.segment().count,
+              status.color().rgb());
+        }
+      }
+    }
   }
 }
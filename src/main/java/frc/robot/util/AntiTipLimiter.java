@@ -0,0 +1,124 @@
+package frc.robot.util;
+
+import com.pathplanner.lib.config.RobotConfig;
+
+import edu.wpi.first.epilogue.Logged;
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import frc.robot.subsystem.Elevator.Position;
+
+/**
+ * Continuous anti-tip acceleration limit from a center of mass model of the
+ * robot. The elevator carriage is the only mass that moves, so the center of
+ * mass height is a blend of the fixed chassis and the carriage at its current
+ * height. The largest acceleration before the robot rotates about its wheels
+ * is g * (support half width / center of mass height), derated by a safety
+ * factor. Top speed keeps the stepped elevator tiers. Measured pitch/roll
+ * derates both, in case the model is optimistic or we are already on a bump.
+ */
+public class AntiTipLimiter {
+    private static final double kGravity = 9.81;
+
+    // Mass model, estimates until we weigh the carriage
+    private static final double kDefaultRobotMassKg = 68.0;
+    private static final double kCarriageMassKg = 8.0;
+    private static final double kChassisCgHeightMeters = 0.15;
+    private static final double kCarriageBaseHeightMeters = 0.35;
+    private static final double kCarriageMetersPerRotation = 1.4 / 63.25;
+    private static final double kDefaultSupportHalfWidthMeters = 0.2413;
+
+    // Stepped tiers, fraction of top speed above each elevator position
+    private static final double kTierSpeedAboveL3 = 1 / 2.0;
+    private static final double kTierSpeedAboveL1 = 1 / 1.5;
+
+    // Fraction of the tipping acceleration we allow
+    private static final double kSafetyFactor = 0.6;
+
+    // Tilt derating, full limits up to the start angle then linear to the floor
+    private static final double kTiltDerateStartDegrees = 3;
+    private static final double kTiltDerateEndDegrees = 10;
+    private static final double kTiltDerateFloor = 0.25;
+
+    private final double robotMassKg;
+    private final double supportHalfWidthMeters;
+    private final double maxSpeedMetersPerSecond;
+
+    private double centerOfMassHeight = 0;
+    private double tiltDegrees = 0;
+    private double maxAcceleration = 0;
+    private double maxSpeed = 0;
+
+    /**
+     * @param config                  PathPlanner robot config for mass and
+     *                                module locations, may be null
+     * @param maxSpeedMetersPerSecond Top speed of the drivetrain
+     */
+    public AntiTipLimiter(RobotConfig config, double maxSpeedMetersPerSecond) {
+        this.maxSpeedMetersPerSecond = maxSpeedMetersPerSecond;
+
+        if (config != null) {
+            robotMassKg = config.massKG;
+            double halfWidth = Double.MAX_VALUE;
+            for (Translation2d moduleLocation : config.moduleLocations) {
+                halfWidth = Math.min(halfWidth, Math.min(Math.abs(moduleLocation.getX()),
+                        Math.abs(moduleLocation.getY())));
+            }
+            supportHalfWidthMeters = halfWidth;
+        } else {
+            robotMassKg = kDefaultRobotMassKg;
+            supportHalfWidthMeters = kDefaultSupportHalfWidthMeters;
+        }
+
+        update(0, 0, 0);
+    }
+
+    /**
+     * Recompute the limits, call once per robot loop.
+     *
+     * @param elevatorRotations Elevator height in motor rotations
+     * @param pitchDegrees      Robot pitch from the gyro
+     * @param rollDegrees       Robot roll from the gyro
+     */
+    public void update(double elevatorRotations, double pitchDegrees, double rollDegrees) {
+        double carriageHeight = kCarriageBaseHeightMeters + Math.max(elevatorRotations, 0) * kCarriageMetersPerRotation;
+        double chassisMass = robotMassKg - kCarriageMassKg;
+        centerOfMassHeight = (chassisMass * kChassisCgHeightMeters + kCarriageMassKg * carriageHeight) / robotMassKg;
+
+        tiltDegrees = Math.max(Math.abs(pitchDegrees), Math.abs(rollDegrees));
+        double tiltProgress = MathUtil.clamp(
+                (tiltDegrees - kTiltDerateStartDegrees) / (kTiltDerateEndDegrees - kTiltDerateStartDegrees), 0, 1);
+        double tiltScale = 1 - tiltProgress * (1 - kTiltDerateFloor);
+
+        maxAcceleration = kGravity * (supportHalfWidthMeters / centerOfMassHeight) * kSafetyFactor * tiltScale;
+        maxSpeed = getTierSpeed(elevatorRotations) * tiltScale;
+    }
+
+    private double getTierSpeed(double elevatorRotations) {
+        if (elevatorRotations > Position.L3.rotations) {
+            return maxSpeedMetersPerSecond * kTierSpeedAboveL3;
+        } else if (elevatorRotations > Position.L1.rotations) {
+            return maxSpeedMetersPerSecond * kTierSpeedAboveL1;
+        }
+        return maxSpeedMetersPerSecond;
+    }
+
+    @Logged(name = "Max acceleration")
+    public double getMaxAcceleration() {
+        return maxAcceleration;
+    }
+
+    @Logged(name = "Max speed")
+    public double getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    @Logged(name = "Center of mass height")
+    public double getCenterOfMassHeight() {
+        return centerOfMassHeight;
+    }
+
+    @Logged(name = "Tilt")
+    public double getTiltDegrees() {
+        return tiltDegrees;
+    }
+}
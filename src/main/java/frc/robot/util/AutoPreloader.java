@@ -0,0 +1,265 @@
+package frc.robot.util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.commands.FollowPathCommand;
+import com.pathplanner.lib.commands.PathPlannerAuto;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.epilogue.Logged;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.Commands;
+import frc.robot.commands.FollowPrecomputedTrajectory;
+import frc.robot.subsystem.CommandSwerveDrivetrain;
+
+/**
+ * Loads every PathPlanner auto in the deploy directory into the auto chooser
+ * at boot, then warms up path following so the first auto does not stall on
+ * class loading and JIT.
+ * <p>
+ * Every .path file is loaded into PathPlanner's own path cache on a
+ * background thread, one at a time since that cache isn't thread safe, so
+ * PathPlannerAuto finds its paths already parsed and only reads the small
+ * .auto file on the main thread. The .auto files are parsed in parallel to
+ * plan them. Autos whose files are broken or reference missing paths are
+ * reported and left out of the chooser. The autos themselves are built on the
+ * main thread, one per disabled loop, since command construction touches the
+ * scheduler, and only once every path is loaded so the cache is never read
+ * while it's being filled.
+ * <p>
+ * Autos that only run paths in sequence follow trajectories generated at build
+ * time, mapped on the background threads, when every path has a current one.
+ * Anything else, named commands or event markers for example, is built by
+ * PathPlanner as usual.
+ */
+public class AutoPreloader {
+    private static final int kThreads = 4;
+
+    /** A parsed auto, with its trajectories if it can run from them. */
+    private record AutoPlan(String name, boolean resetOdometry, List<PrecomputedTrajectory> trajectories) {
+    }
+
+    private final SendableChooser<Command> chooser;
+    private final CommandSwerveDrivetrain drivetrain;
+    private final ExecutorService executor = Executors.newFixedThreadPool(kThreads, runnable -> {
+        Thread thread = new Thread(runnable, "Auto preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService pathLoader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Path preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Future<Optional<AutoPlan>>> parsedFiles = new ArrayList<>();
+    private final Queue<AutoPlan> autosToBuild = new ArrayDeque<>();
+    private final double startSeconds = Timer.getFPGATimestamp();
+    private boolean parsingDone = false;
+    private boolean warmupScheduled = false;
+    private int loadedAutos = 0;
+    private int precomputedAutos = 0;
+
+    public AutoPreloader(SendableChooser<Command> chooser, CommandSwerveDrivetrain drivetrain) {
+        this.chooser = chooser;
+        this.drivetrain = drivetrain;
+
+        Path pathplannerDirectory = Filesystem.getDeployDirectory().toPath().resolve("pathplanner");
+        List<Path> pathFiles = listFiles(pathplannerDirectory.resolve("paths"), ".path");
+        List<Path> autoFiles = listFiles(pathplannerDirectory.resolve("autos"), ".auto");
+        Set<String> pathNames = pathFiles.stream().map(file -> baseName(file, ".path")).collect(Collectors.toSet());
+
+        for (Path file : pathFiles) {
+            parsedFiles.add(pathLoader.submit(() -> {
+                loadPath(file);
+                return Optional.<AutoPlan>empty();
+            }));
+        }
+        for (Path file : autoFiles) {
+            parsedFiles.add(executor.submit(() -> parse(file)
+                    .filter(json -> hasAllPaths(file, json, pathNames))
+                    .map(json -> plan(baseName(file, ".auto"), json))));
+        }
+        executor.shutdown();
+        pathLoader.shutdown();
+    }
+
+    /**
+     * Add the next parsed auto to the chooser, call once per disabled loop.
+     * Path following warmup is scheduled once every auto is in.
+     */
+    public void periodic() {
+        if (warmupScheduled) {
+            return;
+        }
+
+        if (!parsingDone) {
+            if (!parsedFiles.stream().allMatch(Future::isDone)) {
+                return;
+            }
+            for (Future<Optional<AutoPlan>> parsed : parsedFiles) {
+                try {
+                    parsed.get().ifPresent(autosToBuild::add);
+                } catch (InterruptedException | ExecutionException e) {
+                    DataLogManager.log(String.format("GatorBot: Auto preloader failed! %s", e.getMessage()));
+                }
+            }
+            parsingDone = true;
+        }
+
+        AutoPlan plan = autosToBuild.poll();
+        if (plan != null) {
+            try {
+                chooser.addOption(plan.name(), build(plan));
+                loadedAutos++;
+            } catch (Exception e) {
+                DataLogManager.log(String.format("GatorBot: Not able to build auto routine %s! %s", plan.name(),
+                        e.getMessage()));
+            }
+            return;
+        }
+
+        FollowPathCommand.warmupCommand().schedule();
+        warmupScheduled = true;
+        DataLogManager.log(String.format(
+                "GatorBot: Loaded %d autos (%d precomputed) in %.2f seconds, warming up path following",
+                loadedAutos, precomputedAutos, Timer.getFPGATimestamp() - startSeconds));
+    }
+
+    @Logged(name = "Autos loaded")
+    public int getLoadedAutos() {
+        return loadedAutos;
+    }
+
+    @Logged(name = "Precomputed autos")
+    public int getPrecomputedAutos() {
+        return precomputedAutos;
+    }
+
+    @Logged(name = "Ready")
+    public boolean isReady() {
+        return warmupScheduled;
+    }
+
+    private Command build(AutoPlan plan) {
+        if (plan.trajectories().isEmpty()) {
+            return new PathPlannerAuto(plan.name());
+        }
+
+        List<Command> commands = new ArrayList<>();
+        if (plan.resetOdometry()) {
+            PathPlannerTrajectoryState start = plan.trajectories().get(0).getInitialState();
+            commands.add(Commands.runOnce(() -> drivetrain.resetAutoStartPose(
+                    DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red ? start.flip().pose
+                            : start.pose)));
+        }
+        for (PrecomputedTrajectory trajectory : plan.trajectories()) {
+            commands.add(new FollowPrecomputedTrajectory(trajectory, drivetrain));
+        }
+        precomputedAutos++;
+        return Commands.sequence(commands.toArray(Command[]::new)).withName(plan.name());
+    }
+
+    /**
+     * Map the trajectories for an auto that is only a sequence of paths, on a
+     * background thread. Any other auto gets no trajectories.
+     */
+    private static AutoPlan plan(String name, JsonNode auto) {
+        boolean resetOdometry = auto.path("resetOdom").asBoolean(false);
+        JsonNode command = auto.path("command");
+        JsonNode steps = command.path("data").path("commands");
+        if (auto.path("choreoAuto").asBoolean(false) || !command.path("type").asText().equals("sequential")
+                || steps.isEmpty()) {
+            return new AutoPlan(name, resetOdometry, List.of());
+        }
+
+        List<PrecomputedTrajectory> trajectories = new ArrayList<>();
+        for (JsonNode step : steps) {
+            if (!step.path("type").asText().equals("path")) {
+                return new AutoPlan(name, resetOdometry, List.of());
+            }
+            String pathName = step.path("data").path("pathName").asText();
+            try {
+                trajectories.add(PrecomputedTrajectory.load(pathName));
+            } catch (IOException e) {
+                DataLogManager.log(String.format("GatorBot: Auto %s generates %s on the robot, %s", name, pathName,
+                        e.getMessage()));
+                return new AutoPlan(name, resetOdometry, List.of());
+            }
+        }
+        return new AutoPlan(name, resetOdometry, trajectories);
+    }
+
+    private static List<Path> listFiles(Path directory, String extension) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(extension)).sorted().toList();
+        } catch (IOException e) {
+            DataLogManager.log(String.format("GatorBot: Not able to list %s! %s", directory, e.getMessage()));
+            return List.of();
+        }
+    }
+
+    private static Optional<JsonNode> parse(Path file) {
+        try {
+            return Optional.of(new ObjectMapper().readTree(file.toFile()));
+        } catch (IOException e) {
+            DataLogManager.log(String.format("GatorBot: Not able to parse %s! %s", file.getFileName(),
+                    e.getMessage()));
+            return Optional.empty();
+        }
+    }
+
+    /** Load into PathPlanner's path cache, only from the path loader thread. */
+    private static void loadPath(Path file) {
+        try {
+            PathPlannerPath.fromPathFile(baseName(file, ".path"));
+        } catch (Exception e) {
+            DataLogManager.log(String.format("GatorBot: Not able to load path %s! %s", file.getFileName(),
+                    e.getMessage()));
+        }
+    }
+
+    private static boolean hasAllPaths(Path file, JsonNode auto, Set<String> pathNames) {
+        if (auto.path("choreoAuto").asBoolean(false)) {
+            return true;
+        }
+        for (JsonNode pathName : auto.findValues("pathName")) {
+            if (!pathNames.contains(pathName.asText())) {
+                DataLogManager.log(String.format("GatorBot: Auto %s uses missing path %s", file.getFileName(),
+                        pathName.asText()));
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String baseName(Path file, String extension) {
+        String name = file.getFileName().toString();
+        return name.substring(0, name.length() - extension.length());
+    }
+}
@@ -0,0 +1,172 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PriorityQueue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * PathPlanner's navgrid.json as a bitset of blocked cells. Cell centers are at
+ * (column + 0.5, row + 0.5) times the node size, the same as PathPlanner's
+ * pathfinder, with row 0 along the bottom of the field.
+ */
+public class NavGrid {
+    private static final int[][] kNeighbors = {
+            { 1, 0 }, { -1, 0 }, { 0, 1 }, { 0, -1 },
+            { 1, 1 }, { 1, -1 }, { -1, 1 }, { -1, -1 } };
+
+    private final double nodeSize;
+    private final int columns;
+    private final int rows;
+    private final BitSet blocked;
+
+    public NavGrid(double nodeSize, int columns, int rows, BitSet blocked) {
+        this.nodeSize = nodeSize;
+        this.columns = columns;
+        this.rows = rows;
+        this.blocked = blocked;
+    }
+
+    public static NavGrid load(File file) throws IOException {
+        JsonNode json = new ObjectMapper().readTree(file);
+        JsonNode grid = json.get("grid");
+        int rows = grid.size();
+        int columns = grid.get(0).size();
+        BitSet blocked = new BitSet(rows * columns);
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (grid.get(row).get(column).asBoolean()) {
+                    blocked.set(row * columns + column);
+                }
+            }
+        }
+        return new NavGrid(json.get("nodeSizeMeters").asDouble(), columns, rows, blocked);
+    }
+
+    public int getCellCount() {
+        return rows * columns;
+    }
+
+    public boolean isBlocked(int cell) {
+        return blocked.get(cell);
+    }
+
+    /** Cell containing a field position, clamped onto the grid. */
+    public int cellAt(Translation2d position) {
+        int column = Math.max(0, Math.min(columns - 1, (int) Math.floor(position.getX() / nodeSize)));
+        int row = Math.max(0, Math.min(rows - 1, (int) Math.floor(position.getY() / nodeSize)));
+        return row * columns + column;
+    }
+
+    public Translation2d center(int cell) {
+        return new Translation2d((cell % columns + 0.5) * nodeSize, (cell / columns + 0.5) * nodeSize);
+    }
+
+    /**
+     * Nearest unblocked cell to a position, searching outward ring by ring.
+     *
+     * @return Cell index, or -1 if the whole grid is blocked
+     */
+    public int nearestFreeCell(Translation2d position) {
+        int start = cellAt(position);
+        int startColumn = start % columns;
+        int startRow = start / columns;
+        for (int radius = 0; radius < Math.max(rows, columns); radius++) {
+            int best = -1;
+            double bestDistance = Double.MAX_VALUE;
+            for (int row = startRow - radius; row <= startRow + radius; row++) {
+                for (int column = startColumn - radius; column <= startColumn + radius; column++) {
+                    boolean onRing = Math.abs(row - startRow) == radius || Math.abs(column - startColumn) == radius;
+                    if (!onRing || !isOnGrid(column, row) || blocked.get(row * columns + column)) {
+                        continue;
+                    }
+                    double distance = center(row * columns + column).getDistance(position);
+                    if (distance < bestDistance) {
+                        best = row * columns + column;
+                        bestDistance = distance;
+                    }
+                }
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Search outward from a goal cell over the whole grid. This is A* with no
+     * heuristic, run once per goal so a path from any cell can be read back by
+     * following the next cell links.
+     *
+     * @param goal      Goal cell, must be unblocked
+     * @param distances Filled with the path length in meters from each cell to
+     *                  the goal, infinity if unreachable
+     * @return Next cell toward the goal for every cell, -1 if unreachable or the
+     *         goal itself
+     */
+    public int[] searchFrom(int goal, float[] distances) {
+        int[] next = new int[getCellCount()];
+        Arrays.fill(next, -1);
+        Arrays.fill(distances, Float.POSITIVE_INFINITY);
+        distances[goal] = 0;
+
+        // Entries are {distance, cell}, stale entries are skipped when popped
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        open.add(new double[] { 0, goal });
+        while (!open.isEmpty()) {
+            double[] entry = open.poll();
+            int cell = (int) entry[1];
+            if (entry[0] > distances[cell]) {
+                continue;
+            }
+
+            int column = cell % columns;
+            int row = cell / columns;
+            for (int[] offset : kNeighbors) {
+                int neighborColumn = column + offset[0];
+                int neighborRow = row + offset[1];
+                if (!isOnGrid(neighborColumn, neighborRow)) {
+                    continue;
+                }
+                int neighbor = neighborRow * columns + neighborColumn;
+                boolean diagonal = offset[0] != 0 && offset[1] != 0;
+                // Do not cut the corner of a blocked cell on a diagonal step
+                if (blocked.get(neighbor) || diagonal && (blocked.get(row * columns + neighborColumn)
+                        || blocked.get(neighborRow * columns + column))) {
+                    continue;
+                }
+
+                float distance = (float) (distances[cell] + (diagonal ? Math.sqrt(2) : 1) * nodeSize);
+                if (distance < distances[neighbor]) {
+                    distances[neighbor] = distance;
+                    next[neighbor] = cell;
+                    open.add(new double[] { distance, neighbor });
+                }
+            }
+        }
+        return next;
+    }
+
+    /** True if no blocked cell lies on the straight line between two points. */
+    public boolean hasLineOfSight(Translation2d from, Translation2d to) {
+        double distance = from.getDistance(to);
+        int steps = Math.max(1, (int) Math.ceil(distance / (nodeSize / 4)));
+        for (int i = 0; i <= steps; i++) {
+            if (blocked.get(cellAt(from.interpolate(to, (double) i / steps)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isOnGrid(int column, int row) {
+        return column >= 0 && column < columns && row >= 0 && row < rows;
+    }
+}
@@ -0,0 +1,256 @@
+package frc.robot.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.IdealStartingState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.util.FlippingUtil;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.epilogue.Logged;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Transform2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.util.Units;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+
+/**
+ * Drive to scoring paths for every reef face and coral station, searched over
+ * the navgrid once at startup. Each target keeps the next cell toward it from
+ * every cell on the field, so building a path at runtime is only reading the
+ * cells back from the robot's cell, cutting corners where there is line of
+ * sight, and patching the robot's pose on as the first point. No pathfinding
+ * happens while the driver waits.
+ * <p>
+ * Targets are on the blue side, paths are built in blue coordinates and
+ * flipped by AutoBuilder like any other path.
+ */
+public class PathCache {
+    // Robot center to tag, half the robot plus a little clearance
+    private static final double kStandoff = 0.45; // meters
+    // Closer than this the robot is already there
+    private static final double kMinPathLength = 0.05; // meters
+    private static final int[] kReefTags = { 17, 18, 19, 20, 21, 22 };
+    private static final int[] kCoralStationTags = { 12, 13 };
+    // 2025 tags 1 to 11 are red, 12 to 22 blue
+    private static final int kLastRedTag = 11;
+    private static final int kLastBlueTag = 22;
+    // PathPlanner GUI defaults
+    private static final PathConstraints kConstraints = new PathConstraints(3.0, 3.0,
+            Units.degreesToRadians(540), Units.degreesToRadians(720));
+
+    private record Target(Pose2d goal, int goalCell, int[] next, float[] distances) {
+    }
+
+    private final NavGrid grid;
+    private final Map<Integer, Target> targets = new HashMap<>();
+    private final Map<Integer, Integer> redToBlueTags;
+    private double lastBuildMilliseconds = 0;
+
+    public PathCache() {
+        NavGrid loadedGrid = null;
+        try {
+            loadedGrid = NavGrid.load(new File(Filesystem.getDeployDirectory(), "pathplanner/navgrid.json"));
+        } catch (IOException e) {
+            DriverStation.reportError("Failed to load navgrid, drive to target paths are disabled",
+                    e.getStackTrace());
+        }
+        grid = loadedGrid;
+        AprilTagFieldLayout fieldLayout = AprilTagFieldLayout.loadField(AprilTagFields.k2025ReefscapeWelded);
+        redToBlueTags = mapRedToBlueTags(fieldLayout);
+        if (grid == null) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        for (int[] tags : new int[][] { kReefTags, kCoralStationTags }) {
+            for (int tag : tags) {
+                fieldLayout.getTagPose(tag).ifPresent(tagPose -> {
+                    // Tag x axis points out of the face, turn around to face it
+                    Pose2d goal = tagPose.toPose2d()
+                            .transformBy(new Transform2d(kStandoff, 0, Rotation2d.k180deg));
+                    int goalCell = grid.nearestFreeCell(goal.getTranslation());
+                    if (goalCell >= 0) {
+                        float[] distances = new float[grid.getCellCount()];
+                        int[] next = grid.searchFrom(goalCell, distances);
+                        targets.put(tag, new Target(goal, goalCell, next, distances));
+                    }
+                });
+            }
+        }
+        DataLogManager.log(String.format("Path cache: %d targets searched in %.1f ms", targets.size(),
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Path from the robot to square up on an AprilTag. Tags on the red side map
+     * to their blue counterparts when on the red alliance.
+     *
+     * @param robotPose Field relative robot pose
+     * @param speeds    Robot relative speeds, to start the path at speed
+     * @param tagID     Reef face or coral station AprilTag ID
+     * @return Path, empty if the tag is not a target or no path was found
+     */
+    public Optional<PathPlannerPath> getPath(Pose2d robotPose, ChassisSpeeds speeds, int tagID) {
+        int blueTagID = isRedAlliance() ? redToBlueTags.getOrDefault(tagID, tagID) : tagID;
+        Target target = targets.get(blueTagID);
+        return target == null ? Optional.empty() : buildPath(robotPose, speeds, List.of(target));
+    }
+
+    /** Path to whichever coral station is closer to drive to. */
+    public Optional<PathPlannerPath> getPathToCoralStation(Pose2d robotPose, ChassisSpeeds speeds) {
+        List<Target> stations = new ArrayList<>();
+        for (int tag : kCoralStationTags) {
+            if (targets.containsKey(tag)) {
+                stations.add(targets.get(tag));
+            }
+        }
+        return buildPath(robotPose, speeds, stations);
+    }
+
+    @Logged(name = "Last build milliseconds")
+    public double getLastBuildMilliseconds() {
+        return lastBuildMilliseconds;
+    }
+
+    @Logged(name = "Targets")
+    public int getTargetCount() {
+        return targets.size();
+    }
+
+    private Optional<PathPlannerPath> buildPath(Pose2d robotPose, ChassisSpeeds speeds, List<Target> candidates) {
+        if (candidates.isEmpty()) {
+            return Optional.empty();
+        }
+        long buildStart = System.nanoTime();
+        Pose2d start = isRedAlliance() ? FlippingUtil.flipFieldPose(robotPose) : robotPose;
+
+        // The robot can be pressed against something, start from the nearest open cell
+        int startCell = grid.cellAt(start.getTranslation());
+        if (grid.isBlocked(startCell)) {
+            startCell = grid.nearestFreeCell(start.getTranslation());
+        }
+        if (startCell < 0) {
+            return Optional.empty();
+        }
+
+        Target target = null;
+        for (Target candidate : candidates) {
+            if (target == null || candidate.distances()[startCell] < target.distances()[startCell]) {
+                target = candidate;
+            }
+        }
+        if (target == null || Float.isInfinite(target.distances()[startCell])
+                || start.getTranslation().getDistance(target.goal().getTranslation()) < kMinPathLength) {
+            return Optional.empty();
+        }
+
+        List<Translation2d> points = new ArrayList<>();
+        points.add(start.getTranslation());
+        for (int cell = startCell; cell >= 0; cell = target.next()[cell]) {
+            addPoint(points, grid.center(cell));
+        }
+        // End exactly on the goal, even if the last cell center is on top of it
+        if (points.size() > 1 && isOnTop(points.get(points.size() - 1), target.goal().getTranslation())) {
+            points.remove(points.size() - 1);
+        }
+        points.add(target.goal().getTranslation());
+
+        List<Translation2d> corners = cutCorners(points);
+        List<Pose2d> poses = new ArrayList<>();
+        for (int i = 0; i < corners.size(); i++) {
+            // Waypoint headings are the direction of travel, not the robot's heading
+            Translation2d from = corners.get(i == corners.size() - 1 ? i - 1 : i);
+            Translation2d to = corners.get(i == corners.size() - 1 ? i : i + 1);
+            poses.add(new Pose2d(corners.get(i), to.minus(from).getAngle()));
+        }
+
+        PathPlannerPath path = new PathPlannerPath(
+                PathPlannerPath.waypointsFromPoses(poses),
+                kConstraints,
+                new IdealStartingState(Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond),
+                        start.getRotation()),
+                new GoalEndState(0, target.goal().getRotation()));
+        lastBuildMilliseconds = (System.nanoTime() - buildStart) / 1e6;
+        return Optional.of(path);
+    }
+
+    /**
+     * Skip ahead along the cell path to the furthest point still in line of
+     * sight, leaving only the corners. Neighbors are always kept, so the robot
+     * and goal may sit in blocked cells.
+     */
+    private List<Translation2d> cutCorners(List<Translation2d> points) {
+        List<Translation2d> corners = new ArrayList<>();
+        corners.add(points.get(0));
+        int anchor = 0;
+        while (anchor < points.size() - 1) {
+            int furthest = anchor + 1;
+            while (furthest + 1 < points.size()
+                    && grid.hasLineOfSight(points.get(anchor), points.get(furthest + 1))) {
+                furthest++;
+            }
+            corners.add(points.get(furthest));
+            anchor = furthest;
+        }
+        return corners;
+    }
+
+    /** Points on top of each other would leave a waypoint with no direction. */
+    private static void addPoint(List<Translation2d> points, Translation2d point) {
+        if (!isOnTop(points.get(points.size() - 1), point)) {
+            points.add(point);
+        }
+    }
+
+    private static boolean isOnTop(Translation2d a, Translation2d b) {
+        return a.getDistance(b) < kMinPathLength;
+    }
+
+    /**
+     * Each red tag to the blue tag it lands on when flipped the same way
+     * AutoBuilder flips paths, so the two can't disagree.
+     */
+    static Map<Integer, Integer> mapRedToBlueTags(AprilTagFieldLayout fieldLayout) {
+        Map<Integer, Integer> redToBlue = new HashMap<>();
+        for (int redTag = 1; redTag <= kLastRedTag; redTag++) {
+            int red = redTag;
+            fieldLayout.getTagPose(red).ifPresent(redPose -> {
+                Translation2d flipped = FlippingUtil.flipFieldPose(redPose.toPose2d()).getTranslation();
+                int nearest = -1;
+                double nearestDistance = Double.POSITIVE_INFINITY;
+                for (int blueTag = kLastRedTag + 1; blueTag <= kLastBlueTag; blueTag++) {
+                    double distance = fieldLayout.getTagPose(blueTag)
+                            .map(bluePose -> bluePose.toPose2d().getTranslation().getDistance(flipped))
+                            .orElse(Double.POSITIVE_INFINITY);
+                    if (distance < nearestDistance) {
+                        nearest = blueTag;
+                        nearestDistance = distance;
+                    }
+                }
+                if (nearest >= 0) {
+                    redToBlue.put(red, nearest);
+                }
+            });
+        }
+        return redToBlue;
+    }
+
+    private static boolean isRedAlliance() {
+        return DriverStation.getAlliance().orElse(Alliance.Blue) == Alliance.Red;
+    }
+}
@@ -0,0 +1,228 @@
+package frc.robot.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+import com.pathplanner.lib.util.DriveFeedforwards;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * A path's trajectory generated at build time by the trajectory compiler in
+ * tools/trajectory-compiler and memory mapped from the deploy directory, so
+ * the robot never parses or generates it. Sampling interpolates between the
+ * two nearest states.
+ * <p>
+ * Format, big endian: magic, version, checksum of the .path and settings.json
+ * it was generated from, module count, state count, then fixed size states of
+ * floats. Each state is time, pose x/y/rotation, travel heading, field speeds
+ * x/y/omega and linear velocity, followed by acceleration, force, torque
+ * current and robot relative x/y force for each module. Angles are in radians.
+ */
+public class PrecomputedTrajectory {
+    static final int kMagic = 0x5452414A; // TRAJ
+    static final int kVersion = 1;
+    static final int kHeaderBytes = 4 + 4 + 8 + 4 + 4;
+    static final int kStateFloats = 9;
+    static final int kModuleFloats = 5;
+    static final String kDirectory = "trajectories";
+    public static final String kExtension = ".traj";
+
+    private final FloatBuffer states;
+    private final int moduleCount;
+    private final int stateCount;
+    private final int stride;
+
+    private PrecomputedTrajectory(FloatBuffer states, int moduleCount, int stateCount) {
+        this.states = states;
+        this.moduleCount = moduleCount;
+        this.stateCount = stateCount;
+        this.stride = kStateFloats + kModuleFloats * moduleCount;
+    }
+
+    /**
+     * Map the precomputed trajectory for a path from the deploy directory.
+     *
+     * @param pathName PathPlanner path name
+     * @return Trajectory
+     * @throws IOException If the file is missing or broken, or was generated
+     *                     from a different version of the path or settings
+     */
+    public static PrecomputedTrajectory load(String pathName) throws IOException {
+        Path deploy = Filesystem.getDeployDirectory().toPath();
+        return map(deploy.resolve(kDirectory).resolve(pathName + kExtension),
+                checksum(deploy.resolve("pathplanner"), pathName));
+    }
+
+    /**
+     * Map a trajectory file.
+     *
+     * @param file             Trajectory file
+     * @param expectedChecksum Checksum of the path and settings it must have
+     *                         been generated from
+     */
+    static PrecomputedTrajectory map(Path file, long expectedChecksum) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < kHeaderBytes || buffer.getInt() != kMagic) {
+            throw new IOException("Not a trajectory: " + file);
+        }
+        int version = buffer.getInt();
+        if (version != kVersion) {
+            throw new IOException("Unsupported trajectory version " + version);
+        }
+        long checksum = buffer.getLong();
+        if (checksum != expectedChecksum) {
+            throw new IOException("Trajectory is out of date, regenerate it: " + file);
+        }
+
+        int moduleCount = buffer.getInt();
+        int stateCount = buffer.getInt();
+        int stride = kStateFloats + kModuleFloats * moduleCount;
+        if (stateCount < 1 || buffer.remaining() < (long) stateCount * stride * Float.BYTES) {
+            throw new IOException("Trajectory is cut off: " + file);
+        }
+        return new PrecomputedTrajectory(buffer.slice().asFloatBuffer(), moduleCount, stateCount);
+    }
+
+    /**
+     * Checksum of everything a path's trajectory is generated from, to catch a
+     * trajectory left over from before the path was edited.
+     *
+     * @param pathplannerDirectory Directory with settings.json and paths
+     * @param pathName             PathPlanner path name
+     */
+    public static long checksum(Path pathplannerDirectory, String pathName) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(Files.readAllBytes(pathplannerDirectory.resolve("paths").resolve(pathName + ".path")));
+        crc.update(Files.readAllBytes(pathplannerDirectory.resolve("settings.json")));
+        return crc.getValue();
+    }
+
+    /**
+     * Write a trajectory in this format, at build time.
+     *
+     * @param file        Trajectory file
+     * @param checksum    Checksum of the path and settings it was generated from
+     * @param trajectory  PathPlanner's trajectory
+     * @param moduleCount Swerve modules in the robot config it was generated with
+     */
+    public static void write(Path file, long checksum, PathPlannerTrajectory trajectory, int moduleCount)
+            throws IOException {
+        List<PathPlannerTrajectoryState> states = trajectory.getStates();
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(file.toFile())))) {
+            output.writeInt(kMagic);
+            output.writeInt(kVersion);
+            output.writeLong(checksum);
+            output.writeInt(moduleCount);
+            output.writeInt(states.size());
+            for (PathPlannerTrajectoryState state : states) {
+                output.writeFloat((float) state.timeSeconds);
+                output.writeFloat((float) state.pose.getX());
+                output.writeFloat((float) state.pose.getY());
+                output.writeFloat((float) state.pose.getRotation().getRadians());
+                output.writeFloat((float) state.heading.getRadians());
+                output.writeFloat((float) state.fieldSpeeds.vxMetersPerSecond);
+                output.writeFloat((float) state.fieldSpeeds.vyMetersPerSecond);
+                output.writeFloat((float) state.fieldSpeeds.omegaRadiansPerSecond);
+                output.writeFloat((float) state.linearVelocity);
+                for (int module = 0; module < moduleCount; module++) {
+                    output.writeFloat((float) state.feedforwards.accelerationsMPSSq()[module]);
+                    output.writeFloat((float) state.feedforwards.linearForcesNewtons()[module]);
+                    output.writeFloat((float) state.feedforwards.torqueCurrentsAmps()[module]);
+                    output.writeFloat((float) state.feedforwards.robotRelativeForcesXNewtons()[module]);
+                    output.writeFloat((float) state.feedforwards.robotRelativeForcesYNewtons()[module]);
+                }
+            }
+        }
+    }
+
+    public double getTotalTimeSeconds() {
+        return time(stateCount - 1);
+    }
+
+    public PathPlannerTrajectoryState getInitialState() {
+        return sample(0);
+    }
+
+    /**
+     * Trajectory state at a time, held at the ends.
+     *
+     * @param timeSeconds Time since the start of the trajectory
+     * @return New state, safe to flip or modify
+     */
+    public PathPlannerTrajectoryState sample(double timeSeconds) {
+        if (timeSeconds <= time(0)) {
+            return interpolate(0, 0, 0);
+        }
+        if (timeSeconds >= getTotalTimeSeconds()) {
+            return interpolate(stateCount - 1, stateCount - 1, 0);
+        }
+
+        // First state after the time
+        int low = 1;
+        int high = stateCount - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (time(middle) <= timeSeconds) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        double previousTime = time(low - 1);
+        double span = time(low) - previousTime;
+        return interpolate(low - 1, low, span > 0 ? (timeSeconds - previousTime) / span : 0);
+    }
+
+    private double time(int index) {
+        return states.get(index * stride);
+    }
+
+    private double value(int from, int to, int offset, double t) {
+        return MathUtil.interpolate(states.get(from * stride + offset), states.get(to * stride + offset), t);
+    }
+
+    private Rotation2d rotation(int from, int to, int offset, double t) {
+        return Rotation2d.fromRadians(states.get(from * stride + offset))
+                .interpolate(Rotation2d.fromRadians(states.get(to * stride + offset)), t);
+    }
+
+    private PathPlannerTrajectoryState interpolate(int from, int to, double t) {
+        PathPlannerTrajectoryState state = new PathPlannerTrajectoryState();
+        state.timeSeconds = value(from, to, 0, t);
+        state.pose = new Pose2d(value(from, to, 1, t), value(from, to, 2, t), rotation(from, to, 3, t));
+        state.heading = rotation(from, to, 4, t);
+        state.fieldSpeeds = new ChassisSpeeds(value(from, to, 5, t), value(from, to, 6, t), value(from, to, 7, t));
+        state.linearVelocity = value(from, to, 8, t);
+
+        double[][] moduleValues = new double[kModuleFloats][moduleCount];
+        for (int i = 0; i < kModuleFloats; i++) {
+            for (int module = 0; module < moduleCount; module++) {
+                moduleValues[i][module] = value(from, to, kStateFloats + module * kModuleFloats + i, t);
+            }
+        }
+        state.feedforwards = new DriveFeedforwards(moduleValues[0], moduleValues[1], moduleValues[2],
+                moduleValues[3], moduleValues[4]);
+        return state;
+    }
+}
@@ -0,0 +1,178 @@
+package frc.robot.util;
+
+import java.util.Optional;
+
+import edu.wpi.first.epilogue.Logged;
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.RawFiducial;
+
+/**
+ * Picks the reef AprilTag to align against from every fiducial in view rather
+ * than the camera's single primary target. Each reef tag is scored on distance,
+ * pose ambiguity, image area and how far the robot would have to turn to square
+ * up to that face. The chosen tag is kept until a clearly better one shows up or
+ * it has been out of view for a few frames, so alignment does not flip between
+ * faces when two are in view.
+ */
+public class ReefTagSelector {
+    public static final int NO_TAG = 0;
+
+    // Cost weights, lower total cost wins
+    private static final double kDistanceWeight = 1.0; // per meter
+    private static final double kAmbiguityWeight = 2.0; // per unit of ambiguity (0 - 1)
+    private static final double kHeadingWeight = 1.5; // per radian of turn to square up
+    private static final double kAreaWeight = 0.1; // per percent of image area
+
+    // Tags this ambiguous are not trusted at all
+    private static final double kMaxAmbiguity = 0.7;
+    // A challenger must beat the current tag by this much cost to take over
+    private static final double kSwitchMargin = 0.5;
+    // Frames to keep the current tag after it drops out of view
+    private static final int kHoldFrames = 10;
+
+    private final String limelightName;
+    private int selectedTagID = NO_TAG;
+    private RawFiducial selectedFiducial = null;
+    private double selectedCost = 0;
+    private int framesSinceSeen = 0;
+    private int prioritizedTagID = NO_TAG;
+
+    public ReefTagSelector(String limelightName) {
+        this.limelightName = limelightName;
+    }
+
+    /**
+     * Re-evaluate the tags in view. Call once per robot loop before anything
+     * reads the selection.
+     *
+     * @param robotHeading Field relative heading of the robot
+     */
+    public void update(Rotation2d robotHeading) {
+        RawFiducial[] fiducials = LimelightHelpers.getRawFiducials(limelightName);
+
+        RawFiducial best = null;
+        double bestCost = Double.MAX_VALUE;
+        RawFiducial current = null;
+        double currentCost = Double.MAX_VALUE;
+
+        for (RawFiducial fiducial : fiducials) {
+            if (!isReefTag(fiducial.id) || fiducial.ambiguity > kMaxAmbiguity) {
+                continue;
+            }
+
+            double cost = score(fiducial, robotHeading);
+            if (fiducial.id == selectedTagID) {
+                current = fiducial;
+                currentCost = cost;
+            }
+            if (cost < bestCost) {
+                best = fiducial;
+                bestCost = cost;
+            }
+        }
+
+        if (current != null) {
+            framesSinceSeen = 0;
+            if (best != current && bestCost < currentCost - kSwitchMargin) {
+                select(best, bestCost);
+            } else {
+                select(current, currentCost);
+            }
+        } else if (selectedTagID != NO_TAG && framesSinceSeen < kHoldFrames) {
+            framesSinceSeen++;
+        } else if (best != null) {
+            framesSinceSeen = 0;
+            select(best, bestCost);
+        } else {
+            selectedTagID = NO_TAG;
+            selectedFiducial = null;
+            selectedCost = 0;
+        }
+
+        // Steer the camera's primary target (tid, targetpose_*) onto our selection
+        if (selectedTagID != prioritizedTagID) {
+            LimelightHelpers.setPriorityTagID(limelightName, selectedTagID == NO_TAG ? -1 : selectedTagID);
+            prioritizedTagID = selectedTagID;
+        }
+    }
+
+    @Logged(name = "Selected tag")
+    public int getSelectedTagID() {
+        return selectedTagID;
+    }
+
+    @Logged(name = "Selected tag cost")
+    public double getSelectedCost() {
+        return selectedCost;
+    }
+
+    @Logged(name = "Selected tag in view")
+    public boolean isSelectedTagInView() {
+        return selectedTagID != NO_TAG && framesSinceSeen == 0;
+    }
+
+    public boolean hasTarget() {
+        return selectedTagID != NO_TAG;
+    }
+
+    /**
+     * Detection of the selected tag in this frame, empty while the tag is only
+     * being held after dropping out of view.
+     */
+    public Optional<RawFiducial> getSelectedFiducial() {
+        return isSelectedTagInView() ? Optional.ofNullable(selectedFiducial) : Optional.empty();
+    }
+
+    /**
+     * Field relative heading the robot should hold to square up to a reef face.
+     *
+     * @param tagID Reef AprilTag ID
+     * @return Heading in degrees, empty if the ID is not a reef tag
+     */
+    public static Optional<Double> getFaceHeadingDegrees(int tagID) {
+        switch (tagID) {
+            case 11:
+            case 17:
+                return Optional.of(60.0);
+            case 10:
+            case 18:
+                return Optional.of(0.0);
+            case 9:
+            case 19:
+                return Optional.of(-60.0);
+            case 8:
+            case 20:
+                return Optional.of(-120.0);
+            case 7:
+            case 21:
+                return Optional.of(180.0);
+            case 6:
+            case 22:
+                return Optional.of(120.0);
+            default:
+                return Optional.empty();
+        }
+    }
+
+    public static boolean isReefTag(int tagID) {
+        return getFaceHeadingDegrees(tagID).isPresent();
+    }
+
+    private double score(RawFiducial fiducial, Rotation2d robotHeading) {
+        double headingError = Math.abs(robotHeading
+                .minus(Rotation2d.fromDegrees(getFaceHeadingDegrees(fiducial.id).get()))
+                .getRadians());
+
+        return kDistanceWeight * fiducial.distToRobot
+                + kAmbiguityWeight * fiducial.ambiguity
+                + kHeadingWeight * headingError
+                - kAreaWeight * fiducial.ta;
+    }
+
+    private void select(RawFiducial fiducial, double cost) {
+        selectedTagID = fiducial.id;
+        selectedFiducial = fiducial;
+        selectedCost = cost;
+    }
+}
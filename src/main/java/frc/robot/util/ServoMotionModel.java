@@ -0,0 +1,83 @@
+package frc.robot.util;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Open loop model of a hobby servo, which gives no position feedback. The
+ * servo is assumed to slew at its rated speed from wherever it was toward the
+ * last commanded position, so we can estimate where it is and when it will
+ * arrive instead of waiting a worst-case fixed time.
+ * <p>
+ * Positions use the same 0 - 1 range as {@link edu.wpi.first.wpilibj.Servo},
+ * which maps linearly onto the pulse bounds.
+ */
+public class ServoMotionModel {
+    private final double secondsPerUnitPosition;
+
+    private boolean positionKnown = false;
+    private double startPosition = 0;
+    private double targetPosition = 0;
+    private double startTime = 0;
+    private double arrivalTime = 0;
+
+    /**
+     * @param maxPulseMicroseconds  Pulse width at position 1
+     * @param minPulseMicroseconds  Pulse width at position 0
+     * @param degreesPerMicrosecond Servo travel per microsecond of pulse width
+     * @param secondsPer60Degrees   Rated slew time, derate for load
+     */
+    public ServoMotionModel(int maxPulseMicroseconds, int minPulseMicroseconds, double degreesPerMicrosecond,
+            double secondsPer60Degrees) {
+        double rangeDegrees = (maxPulseMicroseconds - minPulseMicroseconds) * degreesPerMicrosecond;
+        secondsPerUnitPosition = rangeDegrees / 60.0 * secondsPer60Degrees;
+    }
+
+    /**
+     * Record a new commanded position.
+     *
+     * @param position Commanded position, 0 - 1
+     */
+    public void setTarget(double position) {
+        double now = Timer.getFPGATimestamp();
+        double travelTime;
+
+        if (positionKnown) {
+            startPosition = getEstimatedPosition();
+            travelTime = estimateTravelTime(startPosition, position);
+        } else {
+            // First command after boot, the servo could be anywhere
+            startPosition = position;
+            travelTime = Math.max(estimateTravelTime(0, position), estimateTravelTime(1, position));
+            positionKnown = true;
+        }
+
+        targetPosition = position;
+        startTime = now;
+        arrivalTime = now + travelTime;
+    }
+
+    public double getEstimatedPosition() {
+        double now = Timer.getFPGATimestamp();
+        if (now >= arrivalTime || arrivalTime <= startTime) {
+            return targetPosition;
+        }
+        double progress = (now - startTime) / (arrivalTime - startTime);
+        return startPosition + (targetPosition - startPosition) * progress;
+    }
+
+    public double getTargetPosition() {
+        return targetPosition;
+    }
+
+    public boolean isAtTarget() {
+        return Timer.getFPGATimestamp() >= arrivalTime;
+    }
+
+    public double getTimeToArrival() {
+        return Math.max(0, arrivalTime - Timer.getFPGATimestamp());
+    }
+
+    public double estimateTravelTime(double fromPosition, double toPosition) {
+        return Math.abs(toPosition - fromPosition) * secondsPerUnitPosition;
+    }
+}
@@ -0,0 +1,140 @@
+package frc.robot.util;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+import edu.wpi.first.wpilibj.AsynchronousInterrupt;
+import edu.wpi.first.wpilibj.DigitalInput;
+
+/**
+ * Digital sensor that captures every edge with its FPGA timestamp through an
+ * asynchronous interrupt, instead of only seeing the level when it is polled
+ * once a loop. Edges that come and go between loops are still counted, and
+ * consumers know when a game piece actually crossed the beam rather than when
+ * the next loop noticed.
+ * <p>
+ * "Active" is the sensor's logical state, e.g. beam broken, so active low
+ * sensors read naturally.
+ */
+public class TimestampedDigitalInput implements AutoCloseable {
+    private final DigitalInput input;
+    private final AsynchronousInterrupt interrupt;
+    private final boolean activeLow;
+    private final CopyOnWriteArrayList<BiConsumer<Boolean, Double>> edgeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile double lastActivatedTimestamp = Double.NaN;
+    private volatile double lastDeactivatedTimestamp = Double.NaN;
+    private volatile int activatedCount = 0;
+    private volatile int deactivatedCount = 0;
+
+    /**
+     * @param channel   DIO channel
+     * @param activeLow True if the sensor reads false when active
+     */
+    public TimestampedDigitalInput(int channel, boolean activeLow) {
+        this.activeLow = activeLow;
+        input = new DigitalInput(channel);
+        interrupt = new AsynchronousInterrupt(input, this::handleInterrupt);
+        interrupt.setInterruptEdges(true, true);
+        interrupt.enable();
+    }
+
+    public int getChannel() {
+        return input.getChannel();
+    }
+
+    public boolean isActive() {
+        return input.get() != activeLow;
+    }
+
+    /** FPGA timestamp in seconds of the last inactive to active edge, NaN if none yet. */
+    public double getLastActivatedTimestamp() {
+        return lastActivatedTimestamp;
+    }
+
+    /** FPGA timestamp in seconds of the last active to inactive edge, NaN if none yet. */
+    public double getLastDeactivatedTimestamp() {
+        return lastDeactivatedTimestamp;
+    }
+
+    /** FPGA timestamp in seconds of the last edge in either direction, NaN if none yet. */
+    public double getLastEdgeTimestamp() {
+        if (Double.isNaN(lastActivatedTimestamp)) {
+            return lastDeactivatedTimestamp;
+        }
+        if (Double.isNaN(lastDeactivatedTimestamp)) {
+            return lastActivatedTimestamp;
+        }
+        return Math.max(lastActivatedTimestamp, lastDeactivatedTimestamp);
+    }
+
+    public int getActivatedCount() {
+        return activatedCount;
+    }
+
+    public int getDeactivatedCount() {
+        return deactivatedCount;
+    }
+
+    public int getEdgeCount() {
+        return activatedCount + deactivatedCount;
+    }
+
+    public boolean hasActivatedSince(double timestamp) {
+        return lastActivatedTimestamp > timestamp;
+    }
+
+    public boolean hasDeactivatedSince(double timestamp) {
+        return lastDeactivatedTimestamp > timestamp;
+    }
+
+    /**
+     * Listen for edges as they happen. Listeners run on the interrupt thread,
+     * not the main robot thread, so they must be quick and thread safe.
+     *
+     * @param listener Called with true for an activated edge or false for a
+     *                 deactivated edge, and the edge's FPGA timestamp in seconds
+     */
+    public void addEdgeListener(BiConsumer<Boolean, Double> listener) {
+        edgeListeners.add(listener);
+    }
+
+    @Override
+    public void close() {
+        interrupt.close();
+        input.close();
+    }
+
+    private void handleInterrupt(Boolean rising, Boolean falling) {
+        // Both edges can be reported in one callback, record them in the order they happened
+        double risingTimestamp = rising ? interrupt.getRisingTimestamp() : Double.NaN;
+        double fallingTimestamp = falling ? interrupt.getFallingTimestamp() : Double.NaN;
+
+        if (rising && falling && fallingTimestamp < risingTimestamp) {
+            recordEdge(false, fallingTimestamp);
+            recordEdge(true, risingTimestamp);
+            return;
+        }
+        if (rising) {
+            recordEdge(true, risingTimestamp);
+        }
+        if (falling) {
+            recordEdge(false, fallingTimestamp);
+        }
+    }
+
+    private void recordEdge(boolean risingEdge, double timestamp) {
+        boolean activated = risingEdge != activeLow;
+        if (activated) {
+            lastActivatedTimestamp = timestamp;
+            activatedCount++;
+        } else {
+            lastDeactivatedTimestamp = timestamp;
+            deactivatedCount++;
+        }
+
+        for (BiConsumer<Boolean, Double> listener : edgeListeners) {
+            listener.accept(activated, timestamp);
+        }
+    }
+}
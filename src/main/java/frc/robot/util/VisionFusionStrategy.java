@@ -0,0 +1,54 @@
+package frc.robot.util;
+
+import java.util.Optional;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.math.util.Units;
+import frc.robot.LimelightHelpers.PoseEstimate;
+
+/**
+ * How a Limelight pose estimate is fused into the drivetrain's pose estimator,
+ * whether it is used and with what standard deviations. Shared by the robot and
+ * by the vision replay tool, so a strategy replayed offline is exactly what
+ * runs on the robot.
+ */
+public enum VisionFusionStrategy {
+    /** MegaTag2 with fixed translation trust, ignored while spinning fast. */
+    MEGATAG2_FIXED {
+        @Override
+        public Optional<Matrix<N3, N1>> evaluate(PoseEstimate estimate, double omegaRadiansPerSecond) {
+            if (estimate == null || estimate.tagCount == 0
+                    || Math.abs(Units.radiansToRotations(omegaRadiansPerSecond)) >= 2.0) {
+                return Optional.empty();
+            }
+            return Optional.of(VecBuilder.fill(.7, .7, 9999999));
+        }
+    },
+
+    /**
+     * MegaTag2 with translation trust falling off with the square of the average
+     * tag distance and improving with more tags.
+     */
+    MEGATAG2_DISTANCE_SCALED {
+        @Override
+        public Optional<Matrix<N3, N1>> evaluate(PoseEstimate estimate, double omegaRadiansPerSecond) {
+            if (estimate == null || estimate.tagCount == 0
+                    || Math.abs(Units.radiansToRotations(omegaRadiansPerSecond)) >= 2.0) {
+                return Optional.empty();
+            }
+            double stdDev = 0.1 * estimate.avgTagDist * estimate.avgTagDist / estimate.tagCount;
+            stdDev = Math.max(stdDev, 0.05);
+            return Optional.of(VecBuilder.fill(stdDev, stdDev, 9999999));
+        }
+    };
+
+    /**
+     * @param estimate              Limelight pose estimate, may be null
+     * @param omegaRadiansPerSecond Robot angular velocity when the estimate arrived
+     * @return Standard deviations to fuse the estimate with, or empty to reject it
+     */
+    public abstract Optional<Matrix<N3, N1>> evaluate(PoseEstimate estimate, double omegaRadiansPerSecond);
+}
@@ -0,0 +1,174 @@
+package frc.robot.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import edu.wpi.first.epilogue.Logged;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.PoseEstimate;
+
+/**
+ * Seeds the pose and heading from vision while the robot sits disabled, so
+ * auto starts from where the robot really is instead of converging over the
+ * first seconds. MegaTag1 frames are used since MegaTag2 takes its heading from
+ * the gyro we are trying to seed. Frames are only collected while the robot is
+ * still, outliers far from the median are dropped, and the rest are averaged.
+ * <p>
+ * A seed is handed out once per still window, then again only if the average
+ * moves well past its own noise, so the pose isn't reset every loop.
+ */
+public class VisionPoseSeeder {
+    private static final int kWindowSize = 30;
+    private static final int kMinInliers = 10;
+    private static final double kMaxTagDistance = 4; // meters
+    private static final double kMaxSingleTagAmbiguity = 0.3;
+    private static final double kStillSpeed = 0.05; // meters or radians per second
+    private static final double kOutlierTranslation = 0.15; // meters
+    private static final double kOutlierHeadingDegrees = 5;
+    static final double kReseedTranslation = 0.05; // meters
+    static final double kReseedHeadingDegrees = 2;
+
+    private final String limelightName;
+    private final List<Pose2d> frames = new ArrayList<>();
+    private double lastFrameTimestamp = 0;
+    private int inlierCount = 0;
+    private double translationSpread = 0;
+    private Pose2d lastSeed = null;
+
+    public VisionPoseSeeder(String limelightName) {
+        this.limelightName = limelightName;
+    }
+
+    /**
+     * Collect the latest frame, call once per disabled loop.
+     *
+     * @param speeds Measured robot speeds, frames are dropped while moving
+     * @return Pose to seed, the first time enough frames agree in this still
+     *         window and whenever the average moves past the hysteresis after
+     */
+    public Optional<Pose2d> update(ChassisSpeeds speeds) {
+        return update(speeds, LimelightHelpers.getBotPoseEstimate_wpiBlue(limelightName));
+    }
+
+    Optional<Pose2d> update(ChassisSpeeds speeds, PoseEstimate estimate) {
+        if (Math.hypot(speeds.vxMetersPerSecond, speeds.vyMetersPerSecond) > kStillSpeed
+                || Math.abs(speeds.omegaRadiansPerSecond) > kStillSpeed) {
+            reset();
+            return Optional.empty();
+        }
+
+        if (estimate != null && estimate.timestampSeconds != lastFrameTimestamp) {
+            lastFrameTimestamp = estimate.timestampSeconds;
+            if (isUsable(estimate)) {
+                frames.add(estimate.pose);
+                if (frames.size() > kWindowSize) {
+                    frames.remove(0);
+                }
+            }
+        }
+
+        return average().filter(this::isNewSeed).map(seed -> {
+            lastSeed = seed;
+            return seed;
+        });
+    }
+
+    public void reset() {
+        frames.clear();
+        inlierCount = 0;
+        translationSpread = 0;
+        lastSeed = null;
+    }
+
+    @Logged(name = "Frames")
+    public int getFrameCount() {
+        return frames.size();
+    }
+
+    @Logged(name = "Inliers")
+    public int getInlierCount() {
+        return inlierCount;
+    }
+
+    @Logged(name = "Translation spread")
+    public double getTranslationSpread() {
+        return translationSpread;
+    }
+
+    private boolean isNewSeed(Pose2d seed) {
+        return lastSeed == null
+                || seed.getTranslation().getDistance(lastSeed.getTranslation()) > kReseedTranslation
+                || Math.abs(seed.getRotation().minus(lastSeed.getRotation()).getDegrees()) > kReseedHeadingDegrees;
+    }
+
+    private static boolean isUsable(PoseEstimate estimate) {
+        if (estimate.tagCount == 0 || estimate.avgTagDist > kMaxTagDistance) {
+            return false;
+        }
+        // A single tag can flip between two solutions, only trust a clear one
+        if (estimate.tagCount == 1 && estimate.rawFiducials.length == 1 && estimate.rawFiducials[0] != null) {
+            return estimate.rawFiducials[0].ambiguity <= kMaxSingleTagAmbiguity;
+        }
+        return true;
+    }
+
+    private Optional<Pose2d> average() {
+        if (frames.size() < kMinInliers) {
+            inlierCount = 0;
+            return Optional.empty();
+        }
+
+        double medianX = median(frames.stream().mapToDouble(Pose2d::getX).toArray());
+        double medianY = median(frames.stream().mapToDouble(Pose2d::getY).toArray());
+        // Headings wrap, judge them against the circular mean instead
+        Rotation2d meanHeading = circularMean(frames);
+
+        double sumX = 0;
+        double sumY = 0;
+        double sumSin = 0;
+        double sumCos = 0;
+        double maxDistance = 0;
+        int inliers = 0;
+        for (Pose2d frame : frames) {
+            double distance = Math.hypot(frame.getX() - medianX, frame.getY() - medianY);
+            double headingError = Math.abs(frame.getRotation().minus(meanHeading).getDegrees());
+            if (distance > kOutlierTranslation || headingError > kOutlierHeadingDegrees) {
+                continue;
+            }
+            sumX += frame.getX();
+            sumY += frame.getY();
+            sumSin += frame.getRotation().getSin();
+            sumCos += frame.getRotation().getCos();
+            maxDistance = Math.max(maxDistance, distance);
+            inliers++;
+        }
+
+        inlierCount = inliers;
+        translationSpread = maxDistance;
+        if (inliers < kMinInliers) {
+            return Optional.empty();
+        }
+        return Optional.of(new Pose2d(sumX / inliers, sumY / inliers, new Rotation2d(sumCos, sumSin)));
+    }
+
+    private static double median(double[] values) {
+        Arrays.sort(values);
+        int middle = values.length / 2;
+        return values.length % 2 == 1 ? values[middle] : (values[middle - 1] + values[middle]) / 2;
+    }
+
+    private static Rotation2d circularMean(List<Pose2d> poses) {
+        double sumSin = 0;
+        double sumCos = 0;
+        for (Pose2d pose : poses) {
+            sumSin += pose.getRotation().getSin();
+            sumCos += pose.getRotation().getCos();
+        }
+        return new Rotation2d(sumCos, sumSin);
+    }
+}
@@ -0,0 +1,172 @@
+package frc.robot.util;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import frc.robot.LimelightHelpers.PoseEstimate;
+
+/**
+ * Quality numbers for one camera's pose estimates, so fusion settings can be
+ * tuned against data instead of by feel. For every new frame this tracks:
+ * <ul>
+ * <li>Innovation, how far the vision pose is from where the estimator thought
+ * the robot was at the frame's timestamp. MegaTag2 takes its heading from the
+ * gyro, so heading innovation comes from the same frame's MegaTag1 pose.</li>
+ * <li>Whether the fusion strategy accepted the frame. Frames without tags
+ * aren't counted, there was nothing to accept.</li>
+ * <li>Frame age when it was read, and tags in the frame.</li>
+ * <li>Time spent reading and fusing the frame, for CPU cost.</li>
+ * </ul>
+ * Latest values and rolling percentiles are published under Vision/camera in
+ * NetworkTables, which DataLogManager also writes to the DataLog.
+ */
+public class VisionQualityMonitor {
+    private static final int kWindowSize = 250;
+    private static final double[] kPercentiles = { 50, 90, 99 };
+
+    private final RollingWindow translationInnovation = new RollingWindow(kWindowSize);
+    private final RollingWindow headingInnovation = new RollingWindow(kWindowSize);
+    private final RollingWindow frameAge = new RollingWindow(kWindowSize);
+    private final RollingWindow processingTime = new RollingWindow(kWindowSize);
+    private final RollingWindow accepted = new RollingWindow(kWindowSize);
+
+    private final DoublePublisher translationInnovationPublisher;
+    private final DoublePublisher headingInnovationPublisher;
+    private final DoublePublisher frameAgePublisher;
+    private final DoublePublisher tagCountPublisher;
+    private final DoublePublisher acceptRatePublisher;
+    private final DoublePublisher[] translationInnovationPercentilePublishers;
+    private final DoublePublisher[] frameAgePercentilePublishers;
+    private final DoublePublisher[] processingTimePercentilePublishers;
+
+    public VisionQualityMonitor(String cameraName) {
+        NetworkTable table = NetworkTableInstance.getDefault().getTable("Vision").getSubTable(cameraName);
+        translationInnovationPublisher = table.getDoubleTopic("Translation innovation").publish();
+        headingInnovationPublisher = table.getDoubleTopic("Heading innovation").publish();
+        frameAgePublisher = table.getDoubleTopic("Frame age").publish();
+        tagCountPublisher = table.getDoubleTopic("Tags per frame").publish();
+        acceptRatePublisher = table.getDoubleTopic("Accept rate").publish();
+        translationInnovationPercentilePublishers = percentilePublishers(table, "Translation innovation");
+        frameAgePercentilePublishers = percentilePublishers(table, "Frame age");
+        processingTimePercentilePublishers = percentilePublishers(table, "Processing microseconds");
+    }
+
+    /**
+     * Record a new frame.
+     *
+     * @param estimate              Frame's pose estimate
+     * @param megaTag1Estimate      Same frame's MegaTag1 estimate for heading
+     *                              innovation, or null
+     * @param estimatedPoseAtFrame  Estimator's pose at the frame's timestamp,
+     *                              before the frame was fused
+     * @param frameAgeSeconds       Time from capture to when the frame was read
+     * @param wasAccepted           True if the frame was fused
+     * @param processingNanoseconds Time spent reading and fusing the frame
+     */
+    public void update(PoseEstimate estimate, PoseEstimate megaTag1Estimate, Optional<Pose2d> estimatedPoseAtFrame,
+            double frameAgeSeconds, boolean wasAccepted, long processingNanoseconds) {
+        boolean hasTags = estimate.tagCount > 0;
+        PoseEstimate headingEstimate = estimate.isMegaTag2 ? megaTag1Estimate : estimate;
+        boolean hasHeading = headingEstimate != null && headingEstimate.tagCount > 0;
+        estimatedPoseAtFrame.ifPresent(estimatedPose -> {
+            if (hasTags) {
+                double translation = estimate.pose.getTranslation().getDistance(estimatedPose.getTranslation());
+                translationInnovation.add(translation);
+                translationInnovationPublisher.set(translation);
+            }
+            if (hasHeading) {
+                double heading = Math.abs(
+                        headingEstimate.pose.getRotation().minus(estimatedPose.getRotation()).getDegrees());
+                headingInnovation.add(heading);
+                headingInnovationPublisher.set(heading);
+            }
+        });
+
+        frameAge.add(frameAgeSeconds);
+        processingTime.add(processingNanoseconds / 1000.0);
+        if (hasTags) {
+            accepted.add(wasAccepted ? 1 : 0);
+        }
+
+        frameAgePublisher.set(frameAgeSeconds);
+        tagCountPublisher.set(estimate.tagCount);
+        acceptRatePublisher.set(accepted.mean());
+        publishPercentiles(translationInnovationPercentilePublishers, translationInnovation);
+        publishPercentiles(frameAgePercentilePublishers, frameAge);
+        publishPercentiles(processingTimePercentilePublishers, processingTime);
+    }
+
+    public double getAcceptRate() {
+        return accepted.mean();
+    }
+
+    public double getTranslationInnovationPercentile(double percentile) {
+        return translationInnovation.percentile(percentile);
+    }
+
+    public double getHeadingInnovationPercentile(double percentile) {
+        return headingInnovation.percentile(percentile);
+    }
+
+    private static DoublePublisher[] percentilePublishers(NetworkTable table, String name) {
+        DoublePublisher[] publishers = new DoublePublisher[kPercentiles.length];
+        for (int i = 0; i < kPercentiles.length; i++) {
+            publishers[i] = table.getDoubleTopic(String.format("%s p%.0f", name, kPercentiles[i])).publish();
+        }
+        return publishers;
+    }
+
+    private static void publishPercentiles(DoublePublisher[] publishers, RollingWindow window) {
+        double[] sorted = window.sorted();
+        for (int i = 0; i < kPercentiles.length; i++) {
+            publishers[i].set(RollingWindow.percentile(sorted, kPercentiles[i]));
+        }
+    }
+
+    /** Last N samples, oldest overwritten first. */
+    private static class RollingWindow {
+        private final double[] values;
+        private int count = 0;
+        private int next = 0;
+
+        RollingWindow(int size) {
+            values = new double[size];
+        }
+
+        void add(double value) {
+            values[next] = value;
+            next = (next + 1) % values.length;
+            count = Math.min(count + 1, values.length);
+        }
+
+        double mean() {
+            double sum = 0;
+            for (int i = 0; i < count; i++) {
+                sum += values[i];
+            }
+            return count > 0 ? sum / count : 0;
+        }
+
+        double[] sorted() {
+            double[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        double percentile(double percentile) {
+            return percentile(sorted(), percentile);
+        }
+
+        static double percentile(double[] sorted, double percentile) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package frc.robot.util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ctre.phoenix6.swerve.SwerveDrivetrain.SwerveDriveState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.wpilibj.DataLogManager;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.LimelightHelpers.PoseEstimate;
+import frc.robot.LimelightHelpers.RawFiducial;
+
+/**
+ * Records everything the pose estimator sees, odometry samples and Limelight
+ * frames, to a compact binary log so a match can be fed back through the same
+ * fusion offline with the vision replay tool in tools/vision-replay.
+ * <p>
+ * Records are queued from the odometry thread and the main loop and written
+ * from a background thread, so neither ever blocks on the file system. If the
+ * writer falls behind, records are dropped and counted rather than queued
+ * without bound. A file stops growing at 64 MB, a match is only a few
+ * megabytes so that's only hit if recording is left running.
+ * <p>
+ * Format, big endian: magic, version, module count, module locations, then
+ * records each starting with a type byte.
+ * <ul>
+ * <li>Odometry: timestamp, raw heading, omega, pose x/y/heading, module
+ * distance/angle pairs.</li>
+ * <li>Vision: timestamp, omega, MegaTag2 flag, length, Limelight botpose array
+ * including the raw fiducial block.</li>
+ * <li>Ground truth, simulation only: timestamp, pose x/y/heading.</li>
+ * </ul>
+ * Timestamps are in the drivetrain's time base, angles in radians.
+ */
+public class VisionRecorder implements AutoCloseable {
+    public static final int kMagic = 0x564C4F47; // VLOG
+    public static final int kVersion = 1;
+    public static final byte kOdometryRecord = 1;
+    public static final byte kVisionRecord = 2;
+    public static final byte kGroundTruthRecord = 3;
+
+    private static final int kQueueCapacity = 4096;
+    private static final long kMaxFileBytes = 64L * 1024 * 1024;
+
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(kQueueCapacity);
+    private final AtomicInteger droppedRecords = new AtomicInteger();
+    private final DataOutputStream output;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    private long bytesWritten = 0;
+    private boolean full = false;
+
+    public VisionRecorder(Path path, Translation2d[] moduleLocations) throws IOException {
+        output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile())));
+        output.writeInt(kMagic);
+        output.writeInt(kVersion);
+        output.writeByte(moduleLocations.length);
+        for (Translation2d location : moduleLocations) {
+            output.writeDouble(location.getX());
+            output.writeDouble(location.getY());
+        }
+        bytesWritten = output.size();
+
+        writerThread = new Thread(this::writeRecords, "Vision recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Start recording to a new file next to the DataLog files.
+     *
+     * @return Recorder, or empty if the file could not be created
+     */
+    public static Optional<VisionRecorder> start(Translation2d[] moduleLocations) {
+        String name = "vision_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".vlog";
+        Path path = Path.of(DataLogManager.getLogDir(), name);
+        try {
+            return Optional.of(new VisionRecorder(path, moduleLocations));
+        } catch (IOException e) {
+            DriverStation.reportWarning("Could not start vision recorder at " + path + ": " + e.getMessage(), false);
+            return Optional.empty();
+        }
+    }
+
+    /** Safe to call from the odometry thread. */
+    public void recordOdometry(SwerveDriveState state) {
+        SwerveModulePosition[] positions = state.ModulePositions;
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * 6 + 1 + positions.length * 16);
+        buffer.put(kOdometryRecord);
+        buffer.putDouble(state.Timestamp);
+        buffer.putDouble(state.RawHeading.getRadians());
+        buffer.putDouble(state.Speeds.omegaRadiansPerSecond);
+        putPose(buffer, state.Pose);
+        buffer.put((byte) positions.length);
+        for (SwerveModulePosition position : positions) {
+            buffer.putDouble(position.distanceMeters);
+            buffer.putDouble(position.angle.getRadians());
+        }
+        enqueue(buffer);
+    }
+
+    /**
+     * @param estimate              Limelight estimate as read from NetworkTables
+     * @param timestampSeconds      Estimate timestamp in the drivetrain's time
+     *                              base
+     * @param omegaRadiansPerSecond Robot angular velocity when the estimate
+     *                              arrived
+     */
+    public void recordVisionFrame(PoseEstimate estimate, double timestampSeconds, double omegaRadiansPerSecond) {
+        double[] poseArray = toPoseArray(estimate);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * 2 + 1 + 2 + poseArray.length * 8);
+        buffer.put(kVisionRecord);
+        buffer.putDouble(timestampSeconds);
+        buffer.putDouble(omegaRadiansPerSecond);
+        buffer.put((byte) (estimate.isMegaTag2 ? 1 : 0));
+        buffer.putShort((short) poseArray.length);
+        for (double value : poseArray) {
+            buffer.putDouble(value);
+        }
+        enqueue(buffer);
+    }
+
+    public void recordGroundTruth(double timestampSeconds, Pose2d pose) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 8 * 4);
+        buffer.put(kGroundTruthRecord);
+        buffer.putDouble(timestampSeconds);
+        putPose(buffer, pose);
+        enqueue(buffer);
+    }
+
+    public int getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * Stop recording. Doesn't wait for the file, the writer thread finishes
+     * what's queued and closes it, so this is safe to call from the main loop.
+     */
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    private void enqueue(ByteBuffer buffer) {
+        if (!running) {
+            return;
+        }
+        if (!queue.offer(buffer.array())) {
+            droppedRecords.incrementAndGet();
+        }
+    }
+
+    private void writeRecords() {
+        try (output) {
+            while (running || !queue.isEmpty()) {
+                byte[] record = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (record != null && bytesWritten + record.length > kMaxFileBytes) {
+                    if (!full) {
+                        DriverStation.reportWarning("Vision recorder file is full, dropping records", false);
+                        full = true;
+                    }
+                    droppedRecords.incrementAndGet();
+                } else if (record != null) {
+                    output.write(record);
+                    bytesWritten += record.length;
+                }
+                if (queue.isEmpty()) {
+                    output.flush();
+                }
+            }
+        } catch (IOException e) {
+            DriverStation.reportWarning("Vision recorder stopped: " + e.getMessage(), false);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void putPose(ByteBuffer buffer, Pose2d pose) {
+        buffer.putDouble(pose.getX());
+        buffer.putDouble(pose.getY());
+        buffer.putDouble(pose.getRotation().getRadians());
+    }
+
+    /** Back to the Limelight botpose layout, 11 values then 7 per fiducial. */
+    private static double[] toPoseArray(PoseEstimate estimate) {
+        RawFiducial[] fiducials = estimate.rawFiducials;
+        double[] poseArray = new double[11 + fiducials.length * 7];
+        poseArray[0] = estimate.pose.getX();
+        poseArray[1] = estimate.pose.getY();
+        poseArray[5] = estimate.pose.getRotation().getDegrees();
+        poseArray[6] = estimate.latency;
+        poseArray[7] = estimate.tagCount;
+        poseArray[8] = estimate.tagSpan;
+        poseArray[9] = estimate.avgTagDist;
+        poseArray[10] = estimate.avgTagArea;
+        for (int i = 0; i < fiducials.length; i++) {
+            RawFiducial fiducial = fiducials[i];
+            int index = 11 + i * 7;
+            if (fiducial == null) {
+                continue;
+            }
+            poseArray[index] = fiducial.id;
+            poseArray[index + 1] = fiducial.txnc;
+            poseArray[index + 2] = fiducial.tync;
+            poseArray[index + 3] = fiducial.ta;
+            poseArray[index + 4] = fiducial.distToCamera;
+            poseArray[index + 5] = fiducial.distToRobot;
+            poseArray[index + 6] = fiducial.ambiguity;
+        }
+        return poseArray;
+    }
+}
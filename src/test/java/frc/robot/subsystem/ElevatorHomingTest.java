@@ -0,0 +1,53 @@
+package frc.robot.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import frc.robot.subsystem.Elevator.Position;
+
+class ElevatorHomingTest {
+  private static final double kSensor = Position.SENSOR.rotations;
+  // What the motor reads above the carriage's true position before homing
+  private static final double kEncoderOffset = 1.5;
+
+  @Test
+  void constantVelocityPassIsExact() {
+    double velocity = -20;
+    double secondsSinceEdge = 0.015;
+    double truePositionNow = kSensor + velocity * secondsSinceEdge;
+
+    double correction = Elevator.computeHomeCorrection(truePositionNow + kEncoderOffset, velocity,
+        secondsSinceEdge);
+
+    assertEquals(-kEncoderOffset, correction, 1e-9);
+    assertEquals(truePositionNow, truePositionNow + kEncoderOffset + correction, 1e-9);
+  }
+
+  @Test
+  void stoppedOnSensorMatchesDirectRezero() {
+    double correction = Elevator.computeHomeCorrection(kSensor + kEncoderOffset, 0, 0.2);
+
+    assertEquals(-kEncoderOffset, correction, 1e-9);
+  }
+
+  @Test
+  void deceleratingPassStaysWithinBoundAndBeatsDirectRezero() {
+    // Carriage slowing onto the sensor at the profile acceleration, read one loop after the edge
+    double acceleration = 150;
+    double velocityAtEdge = -30;
+    double secondsSinceEdge = 0.02;
+    double velocityNow = velocityAtEdge + acceleration * secondsSinceEdge;
+    double truePositionNow = kSensor + velocityAtEdge * secondsSinceEdge
+        + 0.5 * acceleration * secondsSinceEdge * secondsSinceEdge;
+
+    double correction = Elevator.computeHomeCorrection(truePositionNow + kEncoderOffset, velocityNow,
+        secondsSinceEdge);
+    double error = Math.abs(truePositionNow + kEncoderOffset + correction - truePositionNow);
+    double directRezeroError = Math.abs(kSensor - truePositionNow);
+
+    assertTrue(error <= 0.5 * acceleration * secondsSinceEdge * secondsSinceEdge + 1e-9);
+    assertTrue(error < directRezeroError);
+  }
+}
@@ -0,0 +1,108 @@
+package frc.robot.subsystem;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.ctre.phoenix.led.Animation;
+import com.ctre.phoenix.led.RainbowAnimation;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.subsystem.SystemLights.Layer;
+import frc.robot.subsystem.SystemLights.PresetColor;
+import frc.robot.subsystem.SystemLights.Segment;
+
+class SystemLightsTest {
+  /** Records every write instead of sending it to a CANdle. */
+  private static class FakeOutput implements SystemLights.LEDOutput {
+    final List<String> writes = new ArrayList<>();
+
+    @Override
+    public void setLEDs(int r, int g, int b, int w, int startIdx, int count) {
+      writes.add(String.format("set %d,%d,%d %d+%d", r, g, b, startIdx, count));
+    }
+
+    @Override
+    public void animate(Animation animation) {
+      writes.add("animate");
+    }
+
+    @Override
+    public void clearAnimation(int animSlot) {
+      writes.add("clear " + animSlot);
+    }
+  }
+
+  private FakeOutput output;
+  private SystemLights lights;
+
+  @BeforeEach
+  void setup() {
+    assertTrue(HAL.initialize(500, 0));
+    output = new FakeOutput();
+    lights = new SystemLights(output);
+  }
+
+  @AfterEach
+  void shutdown() {
+    CommandScheduler.getInstance().unregisterAllSubsystems();
+  }
+
+  @Test
+  void repeatedColorSendsNoFrames() {
+    lights.showColor(PresetColor.RED);
+    lights.periodic();
+    assertEquals(List.of("set 255,0,0 0+68"), output.writes);
+
+    for (int i = 0; i < 10; i++) {
+      lights.showColor(PresetColor.RED);
+      lights.periodic();
+    }
+    assertEquals(1, output.writes.size());
+    assertEquals(1, lights.getFramesSent());
+    assertEquals(10, lights.getSuppressedRenders());
+  }
+
+  @Test
+  void onlyTheChangedSegmentIsWritten() {
+    boolean[] hasCoral = { false };
+    lights.addStatus(Layer.GAME_PIECE, Segment.STRIP_UPPER, PresetColor.WHITE, () -> hasCoral[0]);
+    lights.showColor(PresetColor.BLUE);
+    lights.periodic();
+    output.writes.clear();
+
+    hasCoral[0] = true;
+    lights.periodic();
+    lights.periodic();
+    assertEquals(List.of("set 255,255,255 38+30"), output.writes);
+
+    hasCoral[0] = false;
+    lights.periodic();
+    assertEquals(List.of("set 255,255,255 38+30", "set 0,0,255 38+30"), output.writes);
+  }
+
+  @Test
+  void leavingAnAnimationClearsIt() {
+    Animation rainbow = new RainbowAnimation(1, 0.5, 68);
+    lights.showAnimation(rainbow);
+    lights.periodic();
+    lights.showAnimation(rainbow);
+    lights.periodic();
+    assertEquals(List.of("animate"), output.writes);
+
+    lights.showColor(PresetColor.GREEN);
+    lights.periodic();
+    // The animation left the strip unknown, so the whole strip is written again
+    assertEquals(List.of("animate", "clear 0", "set 0,255,0 0+68"), output.writes);
+
+    lights.periodic();
+    assertEquals(3, output.writes.size());
+  }
+}
@@ -0,0 +1,41 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.pathplanner.lib.util.FlippingUtil;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.apriltag.AprilTagFields;
+import edu.wpi.first.math.geometry.Pose2d;
+
+class PathCacheTest {
+    private static final AprilTagFieldLayout kFieldLayout = AprilTagFieldLayout
+            .loadField(AprilTagFields.k2025ReefscapeWelded);
+
+    @Test
+    void everyRedTagMapsToTheBlueTagAtItsFlippedPose() {
+        Map<Integer, Integer> redToBlue = PathCache.mapRedToBlueTags(kFieldLayout);
+
+        assertEquals(11, redToBlue.size());
+        redToBlue.forEach((red, blue) -> {
+            Pose2d flipped = FlippingUtil.flipFieldPose(kFieldLayout.getTagPose(red).get().toPose2d());
+            Pose2d bluePose = kFieldLayout.getTagPose(blue).get().toPose2d();
+            assertEquals(0, flipped.getTranslation().getDistance(bluePose.getTranslation()), 0.01,
+                    "Tag " + red + " to " + blue);
+            assertEquals(0, flipped.getRotation().minus(bluePose.getRotation()).getDegrees(), 1,
+                    "Tag " + red + " to " + blue);
+        });
+    }
+
+    @Test
+    void reefAndCoralStationTagsMapToTheirTargets() {
+        Map<Integer, Integer> redToBlue = PathCache.mapRedToBlueTags(kFieldLayout);
+
+        Map<Integer, Integer> expected = Map.of(6, 19, 7, 18, 8, 17, 9, 22, 10, 21, 11, 20, 1, 13, 2, 12);
+        expected.forEach((red, blue) -> assertEquals(blue, redToBlue.get(red), "Tag " + red));
+    }
+}
@@ -0,0 +1,117 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.pathplanner.lib.config.ModuleConfig;
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.IdealStartingState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectoryState;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+
+class PrecomputedTrajectoryTest {
+    private static final long kChecksum = 1250;
+    private static final int kModuleCount = 4;
+    // States are stored as floats
+    private static final double kPositionTolerance = 1e-3; // meters
+    private static final double kAngleTolerance = 1e-3; // radians
+    private static final double kVelocityTolerance = 1e-3; // meters or radians per second
+    private static final double kFeedforwardTolerance = 1e-2; // amps, newtons or meters per second squared
+
+    @TempDir
+    static Path directory;
+
+    private static PathPlannerTrajectory expected;
+    private static PrecomputedTrajectory precomputed;
+
+    @BeforeAll
+    static void generate() throws IOException {
+        // Roughly the robot's settings.json, the numbers only need to make a real trajectory
+        RobotConfig config = new RobotConfig(60, 6,
+                new ModuleConfig(0.048, 5.0, 1.2, DCMotor.getKrakenX60(1), 6.75, 60, 1),
+                new Translation2d(0.3, 0.3), new Translation2d(0.3, -0.3),
+                new Translation2d(-0.3, 0.3), new Translation2d(-0.3, -0.3));
+        // A curve with a turn in place, so rotation, heading and every speed change along it
+        PathPlannerPath path = new PathPlannerPath(
+                PathPlannerPath.waypointsFromPoses(List.of(
+                        new Pose2d(2, 2, Rotation2d.kZero),
+                        new Pose2d(4, 3, Rotation2d.fromDegrees(45)),
+                        new Pose2d(5, 5, Rotation2d.kCCW_Pi_2))),
+                new PathConstraints(3.0, 3.0, Units.degreesToRadians(540), Units.degreesToRadians(720)),
+                new IdealStartingState(0, Rotation2d.kZero),
+                new GoalEndState(0, Rotation2d.k180deg));
+        expected = path.getIdealTrajectory(config).orElseThrow();
+
+        Path file = directory.resolve("Test" + PrecomputedTrajectory.kExtension);
+        PrecomputedTrajectory.write(file, kChecksum, expected, kModuleCount);
+        precomputed = PrecomputedTrajectory.map(file, kChecksum);
+    }
+
+    @Test
+    void samplesMatchPathPlanner() {
+        assertEquals(expected.getTotalTimeSeconds(), precomputed.getTotalTimeSeconds(), 1e-4);
+
+        // Between the stored states as well as on them
+        for (double time = -0.1; time <= expected.getTotalTimeSeconds() + 0.1; time += 0.013) {
+            assertStateEquals(expected.sample(time), precomputed.sample(time), time);
+        }
+    }
+
+    @Test
+    void initialStateMatchesPathPlanner() {
+        assertStateEquals(expected.getInitialState(), precomputed.getInitialState(), 0);
+    }
+
+    @Test
+    void rejectsAStaleChecksum() {
+        Path file = directory.resolve("Test" + PrecomputedTrajectory.kExtension);
+        assertThrows(IOException.class, () -> PrecomputedTrajectory.map(file, kChecksum + 1));
+    }
+
+    private static void assertStateEquals(PathPlannerTrajectoryState expectedState,
+            PathPlannerTrajectoryState actualState, double time) {
+        String at = String.format("at %.3f s", time);
+        assertEquals(expectedState.timeSeconds, actualState.timeSeconds, 1e-4, at);
+        assertEquals(0, expectedState.pose.getTranslation().getDistance(actualState.pose.getTranslation()),
+                kPositionTolerance, at);
+        assertEquals(0, expectedState.pose.getRotation().minus(actualState.pose.getRotation()).getRadians(),
+                kAngleTolerance, at);
+        assertEquals(0, expectedState.heading.minus(actualState.heading).getRadians(), kAngleTolerance, at);
+        assertEquals(expectedState.fieldSpeeds.vxMetersPerSecond, actualState.fieldSpeeds.vxMetersPerSecond,
+                kVelocityTolerance, at);
+        assertEquals(expectedState.fieldSpeeds.vyMetersPerSecond, actualState.fieldSpeeds.vyMetersPerSecond,
+                kVelocityTolerance, at);
+        assertEquals(expectedState.fieldSpeeds.omegaRadiansPerSecond,
+                actualState.fieldSpeeds.omegaRadiansPerSecond, kVelocityTolerance, at);
+        assertEquals(expectedState.linearVelocity, actualState.linearVelocity, kVelocityTolerance, at);
+        for (int module = 0; module < kModuleCount; module++) {
+            assertEquals(expectedState.feedforwards.accelerationsMPSSq()[module],
+                    actualState.feedforwards.accelerationsMPSSq()[module], kFeedforwardTolerance, at);
+            assertEquals(expectedState.feedforwards.linearForcesNewtons()[module],
+                    actualState.feedforwards.linearForcesNewtons()[module], kFeedforwardTolerance, at);
+            assertEquals(expectedState.feedforwards.torqueCurrentsAmps()[module],
+                    actualState.feedforwards.torqueCurrentsAmps()[module], kFeedforwardTolerance, at);
+            assertEquals(expectedState.feedforwards.robotRelativeForcesXNewtons()[module],
+                    actualState.feedforwards.robotRelativeForcesXNewtons()[module], kFeedforwardTolerance, at);
+            assertEquals(expectedState.feedforwards.robotRelativeForcesYNewtons()[module],
+                    actualState.feedforwards.robotRelativeForcesYNewtons()[module], kFeedforwardTolerance, at);
+        }
+    }
+}
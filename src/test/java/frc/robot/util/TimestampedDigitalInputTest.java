@@ -0,0 +1,125 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.DIOSim;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+
+class TimestampedDigitalInputTest {
+    private static final int kChannel = 9;
+    // Interrupts are handled on their own thread, give it this long to catch up
+    private static final long kInterruptWaitMillis = 1000;
+    private static final double kTimestampTolerance = 1e-6;
+
+    private TimestampedDigitalInput input;
+    private DIOSim sim;
+
+    @BeforeEach
+    void setup() {
+        assertTrue(HAL.initialize(500, 0));
+        SimHooks.pauseTiming();
+        input = new TimestampedDigitalInput(kChannel, true);
+        sim = new DIOSim(kChannel);
+        // Active low, high is the beam clear
+        sim.setValue(true);
+    }
+
+    @AfterEach
+    void shutdown() {
+        input.close();
+        sim.resetData();
+        SimHooks.resumeTiming();
+    }
+
+    @Test
+    void recordsBothEdgesWithTheirTimestamps() {
+        SimHooks.stepTiming(0.1);
+        double activatedTime = Timer.getFPGATimestamp();
+        sim.setValue(false);
+        waitFor(() -> input.getActivatedCount() == 1);
+
+        assertTrue(input.isActive());
+        assertEquals(activatedTime, input.getLastActivatedTimestamp(), kTimestampTolerance);
+        assertEquals(0, input.getDeactivatedCount());
+        assertTrue(Double.isNaN(input.getLastDeactivatedTimestamp()));
+
+        SimHooks.stepTiming(0.02);
+        double deactivatedTime = Timer.getFPGATimestamp();
+        sim.setValue(true);
+        waitFor(() -> input.getDeactivatedCount() == 1);
+
+        assertFalse(input.isActive());
+        assertEquals(deactivatedTime, input.getLastDeactivatedTimestamp(), kTimestampTolerance);
+        assertEquals(activatedTime, input.getLastActivatedTimestamp(), kTimestampTolerance);
+        assertEquals(2, input.getEdgeCount());
+        assertEquals(deactivatedTime, input.getLastEdgeTimestamp(), kTimestampTolerance);
+        assertTrue(input.hasActivatedSince(activatedTime - 0.001));
+        assertFalse(input.hasActivatedSince(activatedTime));
+    }
+
+    @Test
+    void countsPulseShorterThanALoop() {
+        SimHooks.stepTiming(0.1);
+        double activatedTime = Timer.getFPGATimestamp();
+        sim.setValue(false);
+        SimHooks.stepTiming(0.001);
+        double deactivatedTime = Timer.getFPGATimestamp();
+        sim.setValue(true);
+        waitFor(() -> input.getEdgeCount() == 2);
+
+        // A once a loop poll would never have seen the beam broken
+        assertFalse(input.isActive());
+        assertEquals(1, input.getActivatedCount());
+        assertEquals(1, input.getDeactivatedCount());
+        assertEquals(activatedTime, input.getLastActivatedTimestamp(), kTimestampTolerance);
+        assertEquals(deactivatedTime, input.getLastDeactivatedTimestamp(), kTimestampTolerance);
+    }
+
+    @Test
+    void notifiesListenersInEdgeOrder() {
+        StringBuilder edges = new StringBuilder();
+        input.addEdgeListener((activated, timestamp) -> {
+            synchronized (edges) {
+                edges.append(activated ? 'A' : 'D');
+            }
+        });
+
+        SimHooks.stepTiming(0.1);
+        sim.setValue(false);
+        SimHooks.stepTiming(0.02);
+        sim.setValue(true);
+        // Listeners run after the counts update, wait on what they recorded
+        waitFor(() -> {
+            synchronized (edges) {
+                return edges.length() == 2;
+            }
+        });
+
+        synchronized (edges) {
+            assertEquals("AD", edges.toString());
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + kInterruptWaitMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the interrupt");
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
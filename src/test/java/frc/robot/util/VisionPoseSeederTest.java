@@ -0,0 +1,92 @@
+package frc.robot.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import frc.robot.LimelightHelpers.PoseEstimate;
+import frc.robot.LimelightHelpers.RawFiducial;
+
+class VisionPoseSeederTest {
+    private static final ChassisSpeeds kStill = new ChassisSpeeds();
+    private static final ChassisSpeeds kMoving = new ChassisSpeeds(0.5, 0, 0);
+    private static final Pose2d kRobotPose = new Pose2d(2.5, 4.0, Rotation2d.fromDegrees(30));
+    // Frame to frame noise of a robot sitting still a couple of meters from two tags
+    private static final double kTranslationNoise = 0.01;
+    private static final double kHeadingNoiseDegrees = 0.5;
+
+    private final VisionPoseSeeder seeder = new VisionPoseSeeder("limelight");
+    private final Random random = new Random(1250);
+    private double timestamp = 0;
+
+    @Test
+    void seedsOnceWhileSittingStill() {
+        List<Pose2d> seeds = feed(kStill, kRobotPose, 200);
+
+        // A loop per frame at 50 Hz is four seconds disabled
+        assertEquals(1, seeds.size());
+        assertEquals(0, seeds.get(0).getTranslation().getDistance(kRobotPose.getTranslation()), kTranslationNoise);
+        assertEquals(0, seeds.get(0).getRotation().minus(kRobotPose.getRotation()).getDegrees(),
+                kHeadingNoiseDegrees);
+    }
+
+    @Test
+    void reseedsOnlyPastTheHysteresis() {
+        feed(kStill, kRobotPose, 50);
+
+        // Less than the hysteresis, e.g. the average settling
+        Pose2d nudged = new Pose2d(kRobotPose.getX() + VisionPoseSeeder.kReseedTranslation / 2, kRobotPose.getY(),
+                kRobotPose.getRotation());
+        assertTrue(feed(kStill, nudged, 100).isEmpty());
+
+        // The robot was bumped without the wheels seeing it
+        Pose2d bumped = new Pose2d(kRobotPose.getX() + 0.1, kRobotPose.getY(), kRobotPose.getRotation());
+        List<Pose2d> seeds = feed(kStill, bumped, 100);
+        assertTrue(!seeds.isEmpty() && seeds.size() <= 2);
+        assertEquals(0, seeds.get(seeds.size() - 1).getTranslation().getDistance(bumped.getTranslation()),
+                VisionPoseSeeder.kReseedTranslation);
+    }
+
+    @Test
+    void seedsAgainAfterMoving() {
+        assertEquals(1, feed(kStill, kRobotPose, 50).size());
+        assertTrue(feed(kMoving, kRobotPose, 10).isEmpty());
+        assertEquals(1, feed(kStill, kRobotPose, 50).size());
+    }
+
+    @Test
+    void ignoresFramesWithoutTags() {
+        for (int i = 0; i < 50; i++) {
+            timestamp += 0.02;
+            PoseEstimate noTags = new PoseEstimate(new Pose2d(), timestamp, 0, 0, 0, 0, 0, new RawFiducial[0], false);
+            assertTrue(seeder.update(kStill, noTags).isEmpty());
+        }
+        assertEquals(0, seeder.getFrameCount());
+    }
+
+    /** Feed noisy frames around the pose, one per loop, and collect the seeds. */
+    private List<Pose2d> feed(ChassisSpeeds speeds, Pose2d pose, int frames) {
+        List<Pose2d> seeds = new ArrayList<>();
+        for (int i = 0; i < frames; i++) {
+            timestamp += 0.02;
+            Pose2d noisyPose = new Pose2d(
+                    pose.getX() + random.nextGaussian() * kTranslationNoise / 3,
+                    pose.getY() + random.nextGaussian() * kTranslationNoise / 3,
+                    pose.getRotation().plus(Rotation2d.fromDegrees(random.nextGaussian() * kHeadingNoiseDegrees / 3)));
+            PoseEstimate estimate = new PoseEstimate(noisyPose, timestamp, 20, 2, 0.5, 2.0, 0.3,
+                    new RawFiducial[0], false);
+            Optional<Pose2d> seed = seeder.update(speeds, estimate);
+            seed.ifPresent(seeds::add);
+        }
+        return seeds;
+    }
+}
@@ -0,0 +1,232 @@
+package frc.tools.loganalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Offline fit of the elevator feedforward from SysId logs.
+ * <p>
+ * Usage: {@code ./gradlew :log-analyzer:fitElevatorGains --args="log.wpilog..."}
+ * with optional {@code --state}, {@code --velocity} and {@code --voltage}
+ * entry names. SignalLogger writes hoot files, convert them to wpilog with
+ * owlet first. Entries are matched on the end of their names, like the match
+ * analyzer, so a bus or logger prefix added by the conversion does not
+ * matter. If an entry is missing, the names that look like the left elevator
+ * motor are listed so the right one can be passed in.
+ * <p>
+ * Samples are taken from the elevator SysId tests only, and fit by least
+ * squares to V = kS * sign(v) + kG + kV * v + kA * a, in motor rotations so
+ * the gains drop straight into the Slot0 config.
+ */
+public class ElevatorGainFitter implements WpiLogReader.RecordHandler {
+    private static final String kDefaultStateEntry = "SysIdElevator_State";
+    private static final String kDefaultVelocityEntry = "TalonFX-30/Velocity";
+    private static final String kDefaultVoltageEntry = "TalonFX-30/MotorVoltage";
+    private static final String kMotorHint = "TalonFX-30";
+
+    // Too slow to know which way friction acts
+    private static final double kMinVelocity = 0.1; // rotations per second
+
+    private enum Signal {
+        STATE,
+        VELOCITY,
+        VOLTAGE
+    }
+
+    private record Sample(double voltage, double velocity, double acceleration) {
+    }
+
+    private final Map<Signal, String> entryNames;
+    private final Map<Integer, Signal> entries = new HashMap<>();
+    private final TreeSet<String> motorEntries = new TreeSet<>();
+    private final List<Sample> samples = new ArrayList<>();
+    private String state = "none";
+    private double voltage = Double.NaN;
+    private double lastVelocity = Double.NaN;
+    private long lastVelocityTimestamp = 0;
+
+    private ElevatorGainFitter(Map<Signal, String> entryNames) {
+        this.entryNames = entryNames;
+    }
+
+    public static void main(String[] args) {
+        Map<Signal, String> entryNames = new HashMap<>(Map.of(
+                Signal.STATE, kDefaultStateEntry,
+                Signal.VELOCITY, kDefaultVelocityEntry,
+                Signal.VOLTAGE, kDefaultVoltageEntry));
+        List<Path> logs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--state" -> entryNames.put(Signal.STATE, args[++i]);
+                case "--velocity" -> entryNames.put(Signal.VELOCITY, args[++i]);
+                case "--voltage" -> entryNames.put(Signal.VOLTAGE, args[++i]);
+                default -> logs.add(Path.of(args[i]));
+            }
+        }
+        if (logs.isEmpty()) {
+            System.err.println("Usage: ElevatorGainFitter [--state entry] [--velocity entry] [--voltage entry] "
+                    + "<log.wpilog>...");
+            System.exit(1);
+        }
+
+        // One fitter over every log, the tests are often split across files
+        ElevatorGainFitter fitter = new ElevatorGainFitter(entryNames);
+        for (Path log : logs) {
+            try {
+                fitter.read(log);
+            } catch (IOException | RuntimeException e) {
+                System.err.println(log + ": failed: " + e);
+                System.exit(1);
+            }
+        }
+
+        if (fitter.samples.size() < 4) {
+            System.err.printf("Not enough SysId samples, found %d. Looked for entries ending in %s, %s and %s.%n",
+                    fitter.samples.size(), entryNames.get(Signal.STATE), entryNames.get(Signal.VELOCITY),
+                    entryNames.get(Signal.VOLTAGE));
+            if (!fitter.motorEntries.isEmpty()) {
+                System.err.println("Entries for " + kMotorHint + " in the logs:");
+                fitter.motorEntries.forEach(name -> System.err.println("  " + name));
+            }
+            System.exit(1);
+        }
+
+        double[] gains = fit(fitter.samples);
+        System.out.printf("Samples: %d%n", fitter.samples.size());
+        System.out.printf("kS: %.4f V%n", gains[0]);
+        System.out.printf("kG: %.4f V%n", gains[1]);
+        System.out.printf("kV: %.4f V/(rot/s)%n", gains[2]);
+        System.out.printf("kA: %.4f V/(rot/s^2)%n", gains[3]);
+        System.out.printf("R^2: %.4f%n", rSquared(fitter.samples, gains));
+    }
+
+    private void read(Path log) throws IOException {
+        entries.clear();
+        state = "none";
+        voltage = Double.NaN;
+        lastVelocity = Double.NaN;
+        WpiLogReader.read(log, this);
+    }
+
+    @Override
+    public void start(int entry, String name, String type) {
+        if (name.contains(kMotorHint)) {
+            motorEntries.add(name);
+        }
+        for (Map.Entry<Signal, String> signal : entryNames.entrySet()) {
+            if (name.endsWith(signal.getValue())) {
+                entries.put(entry, signal.getKey());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void data(int entry, long timestampMicros, ByteBuffer payload) {
+        Signal signal = entries.get(entry);
+        if (signal == null) {
+            return;
+        }
+
+        switch (signal) {
+            case STATE -> {
+                state = WpiLogReader.getString(payload);
+                // Don't difference velocity across tests
+                lastVelocity = Double.NaN;
+            }
+            case VOLTAGE -> voltage = WpiLogReader.getDouble(payload);
+            case VELOCITY -> {
+                double velocity = WpiLogReader.getDouble(payload);
+                if (isTestRunning() && !Double.isNaN(voltage) && !Double.isNaN(lastVelocity)
+                        && timestampMicros > lastVelocityTimestamp && Math.abs(velocity) >= kMinVelocity) {
+                    double dt = (timestampMicros - lastVelocityTimestamp) / 1e6;
+                    samples.add(new Sample(voltage, velocity, (velocity - lastVelocity) / dt));
+                }
+                lastVelocity = velocity;
+                lastVelocityTimestamp = timestampMicros;
+            }
+        }
+    }
+
+    private boolean isTestRunning() {
+        return state.startsWith("quasistatic") || state.startsWith("dynamic");
+    }
+
+    private static double[] regressors(Sample sample) {
+        return new double[] { Math.signum(sample.velocity()), 1, sample.velocity(), sample.acceleration() };
+    }
+
+    /**
+     * Least squares through the normal equations, small enough that a 4x4
+     * Gaussian elimination is all that's needed.
+     */
+    private static double[] fit(List<Sample> samples) {
+        int n = 4;
+        double[][] system = new double[n][n + 1];
+        for (Sample sample : samples) {
+            double[] x = regressors(sample);
+            for (int row = 0; row < n; row++) {
+                for (int column = 0; column < n; column++) {
+                    system[row][column] += x[row] * x[column];
+                }
+                system[row][n] += x[row] * sample.voltage();
+            }
+        }
+
+        for (int pivot = 0; pivot < n; pivot++) {
+            int best = pivot;
+            for (int row = pivot + 1; row < n; row++) {
+                if (Math.abs(system[row][pivot]) > Math.abs(system[best][pivot])) {
+                    best = row;
+                }
+            }
+            double[] swap = system[pivot];
+            system[pivot] = system[best];
+            system[best] = swap;
+            if (Math.abs(system[pivot][pivot]) < 1e-12) {
+                throw new IllegalStateException("Samples don't constrain every gain, run all four tests");
+            }
+
+            for (int row = pivot + 1; row < n; row++) {
+                double factor = system[row][pivot] / system[pivot][pivot];
+                for (int column = pivot; column <= n; column++) {
+                    system[row][column] -= factor * system[pivot][column];
+                }
+            }
+        }
+
+        double[] gains = new double[n];
+        for (int row = n - 1; row >= 0; row--) {
+            double sum = system[row][n];
+            for (int column = row + 1; column < n; column++) {
+                sum -= system[row][column] * gains[column];
+            }
+            gains[row] = sum / system[row][row];
+        }
+        return gains;
+    }
+
+    private static double rSquared(List<Sample> samples, double[] gains) {
+        double mean = samples.stream().mapToDouble(Sample::voltage).average().orElse(0);
+        double residualSum = 0;
+        double totalSum = 0;
+
+        for (Sample sample : samples) {
+            double[] x = regressors(sample);
+            double predicted = 0;
+            for (int i = 0; i < gains.length; i++) {
+                predicted += gains[i] * x[i];
+            }
+            residualSum += Math.pow(sample.voltage() - predicted, 2);
+            totalSum += Math.pow(sample.voltage() - mean, 2);
+        }
+
+        return totalSum == 0 ? 0 : 1 - residualSum / totalSum;
+    }
+}
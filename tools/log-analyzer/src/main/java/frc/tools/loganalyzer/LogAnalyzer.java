@@ -0,0 +1,116 @@
+package frc.tools.loganalyzer;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Reports per match numbers from the robot's DataLogManager logs: scoring
+ * cycle times, loop overruns, vision accept rate and elevator move times.
+ * Each log is read in one pass from a memory mapped file, and logs are
+ * processed in parallel.
+ * <p>
+ * Usage: {@code ./gradlew :log-analyzer:run --args="logs [--csv report.csv]"}
+ * where logs is any mix of .wpilog files and directories to search. Phoenix
+ * .hoot logs have to be converted to .wpilog with CTRE's owlet first.
+ */
+public class LogAnalyzer {
+    private record Result(Path file, Optional<MatchReport> report, String error) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        Path csv = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--csv") && i + 1 < args.length) {
+                csv = Path.of(args[++i]);
+            } else {
+                inputs.add(Path.of(args[i]));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: LogAnalyzer <log or directory>... [--csv report.csv]");
+            System.exit(1);
+        }
+
+        List<Path> logs = findLogs(inputs);
+        if (logs.isEmpty()) {
+            System.err.println("No .wpilog files found");
+            System.exit(1);
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = logs.parallelStream().map(LogAnalyzer::analyze).toList();
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        List<MatchReport> reports = new ArrayList<>();
+        System.out.println(MatchReport.kHeader);
+        for (Result result : results) {
+            if (result.report().isPresent()) {
+                reports.add(result.report().get());
+                System.out.println(result.report().get().toRow());
+            } else {
+                System.out.printf("%-28s %s%n", result.file().getFileName(), result.error());
+            }
+        }
+
+        List<Double> allCycles = new ArrayList<>();
+        List<Double> allMoves = new ArrayList<>();
+        int overruns = 0;
+        for (MatchReport report : reports) {
+            allCycles.addAll(report.teleopCycleSeconds());
+            allMoves.addAll(report.elevatorMoveSeconds());
+            overruns += report.overrunWarnings();
+        }
+        System.out.printf("%n%d logs in %.2f s. Teleop cycles: %d, median %.2f s. Elevator moves: %d, p90 %.2f s. "
+                + "Overrun warnings: %d%n", reports.size(), elapsedSeconds, allCycles.size(),
+                MatchReport.percentile(allCycles, 50), allMoves.size(), MatchReport.percentile(allMoves, 90),
+                overruns);
+
+        if (csv != null) {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(csv))) {
+                writer.println(MatchReport.kCsvHeader);
+                reports.forEach(report -> writer.println(report.toCsv()));
+            }
+            System.out.println("Wrote " + csv);
+        }
+    }
+
+    private static Result analyze(Path file) {
+        try {
+            return new Result(file, Optional.of(MatchAnalyzer.analyze(file)), null);
+        } catch (IOException | RuntimeException e) {
+            return new Result(file, Optional.empty(), "failed: " + e);
+        }
+    }
+
+    private static List<Path> findLogs(List<Path> inputs) throws IOException {
+        List<Path> logs = new ArrayList<>();
+        for (Path input : inputs) {
+            if (!Files.isDirectory(input)) {
+                addLog(logs, input);
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(input)) {
+                for (Path file : files.filter(Files::isRegularFile).sorted().toList()) {
+                    addLog(logs, file);
+                }
+            }
+        }
+        return logs;
+    }
+
+    private static void addLog(List<Path> logs, Path file) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".wpilog")) {
+            logs.add(file);
+        } else if (name.endsWith(".hoot")) {
+            System.err.println("Skipping " + file + ", convert it to .wpilog with owlet first");
+        }
+    }
+}
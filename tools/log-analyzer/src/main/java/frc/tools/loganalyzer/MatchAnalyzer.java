@@ -0,0 +1,234 @@
+package frc.tools.loganalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds a {@link MatchReport} from one log in a single pass. Entries are
+ * matched on the end of their names, so the report works whether the robot's
+ * signals came through NetworkTables ("NT:/Robot/...") or were logged
+ * straight to the DataLog.
+ * <p>
+ * NetworkTables values are only logged when they change, so nothing here
+ * counts samples. Events come from counters stepping, and rates are weighted
+ * by how long each value held.
+ */
+public class MatchAnalyzer implements WpiLogReader.RecordHandler {
+    private enum Signal {
+        ENABLED("DS:enabled"),
+        AUTONOMOUS("DS:autonomous"),
+        EVENT_NAME("FMSInfo/EventName"),
+        MATCH_TYPE("FMSInfo/MatchType"),
+        MATCH_NUMBER("FMSInfo/MatchNumber"),
+        CONSOLE("console"),
+        EJECT_COUNT("End effector/Eject count"),
+        MOVE_COUNT("Elevator/Move count"),
+        LAST_MOVE_SECONDS("Elevator/Last move seconds"),
+        HOMING_SECONDS("Elevator/Homing seconds"),
+        VISION_ACCEPT_RATE("Vision/limelight/Accept rate");
+
+        private final String nameSuffix;
+
+        Signal(String nameSuffix) {
+            this.nameSuffix = nameSuffix;
+        }
+    }
+
+    // WPILib prints this at most once a second while loops keep overrunning
+    private static final String kOverrunMessage = "Loop time of";
+    private static final String[] kMatchTypes = { "", "P", "Q", "E" };
+    // The move count and its duration are set in the same robot loop
+    private static final double kSameLoopSeconds = 0.01;
+
+    private final Path file;
+    private final Map<Integer, Signal> entries = new HashMap<>();
+
+    private boolean enabled = false;
+    private boolean autonomous = false;
+    private double periodStartSeconds = 0;
+    private double lastEjectSeconds = 0;
+    private long ejectCount = -1;
+
+    private String eventName = "";
+    private long matchType = 0;
+    private long matchNumber = 0;
+    private int autoEjects = 0;
+    private int teleopEjects = 0;
+    private final List<Double> teleopCycleSeconds = new ArrayList<>();
+    private int overrunWarnings = 0;
+    private double lastTimestampSeconds = 0;
+    private double acceptRate = Double.NaN;
+    private double acceptRateSince = 0;
+    private double acceptRateIntegral = 0;
+    private double acceptRateSeconds = 0;
+    private long moveCount = -1;
+    private double lastMoveSeconds = Double.NaN;
+    private double lastMoveSecondsTimestamp = Double.NEGATIVE_INFINITY;
+    private double pendingMoveTimestamp = Double.NaN;
+    private final List<Double> elevatorMoveSeconds = new ArrayList<>();
+    private double homingSeconds = Double.NaN;
+
+    private MatchAnalyzer(Path file) {
+        this.file = file;
+    }
+
+    public static MatchReport analyze(Path file) throws IOException {
+        MatchAnalyzer analyzer = new MatchAnalyzer(file);
+        WpiLogReader.read(file, analyzer);
+        return analyzer.report();
+    }
+
+    @Override
+    public void start(int entry, String name, String type) {
+        for (Signal signal : Signal.values()) {
+            if (name.endsWith(signal.nameSuffix)) {
+                entries.put(entry, signal);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void data(int entry, long timestampMicros, ByteBuffer payload) {
+        Signal signal = entries.get(entry);
+        if (signal == null) {
+            return;
+        }
+
+        double seconds = timestampMicros / 1e6;
+        lastTimestampSeconds = Math.max(lastTimestampSeconds, seconds);
+        switch (signal) {
+            case ENABLED -> {
+                boolean nowEnabled = WpiLogReader.getBoolean(payload);
+                accumulateAcceptRate(seconds);
+                if (nowEnabled && !enabled) {
+                    startPeriod(seconds);
+                }
+                enabled = nowEnabled;
+            }
+            case AUTONOMOUS -> {
+                boolean nowAutonomous = WpiLogReader.getBoolean(payload);
+                if (enabled && nowAutonomous != autonomous) {
+                    startPeriod(seconds);
+                }
+                autonomous = nowAutonomous;
+            }
+            case EVENT_NAME -> eventName = WpiLogReader.getString(payload);
+            case MATCH_TYPE -> matchType = WpiLogReader.getInteger(payload);
+            case MATCH_NUMBER -> matchNumber = WpiLogReader.getInteger(payload);
+            case CONSOLE -> {
+                String text = WpiLogReader.getString(payload);
+                for (int index = text.indexOf(kOverrunMessage); index >= 0;
+                        index = text.indexOf(kOverrunMessage, index + 1)) {
+                    overrunWarnings++;
+                }
+            }
+            case EJECT_COUNT -> recordEject(seconds, WpiLogReader.getInteger(payload));
+            case MOVE_COUNT -> recordMoveCount(seconds, WpiLogReader.getInteger(payload));
+            case LAST_MOVE_SECONDS -> recordLastMoveSeconds(seconds, WpiLogReader.getDouble(payload));
+            case HOMING_SECONDS -> {
+                double homing = WpiLogReader.getDouble(payload);
+                if (homing > 0) {
+                    homingSeconds = homing;
+                }
+            }
+            case VISION_ACCEPT_RATE -> {
+                accumulateAcceptRate(seconds);
+                acceptRate = WpiLogReader.getDouble(payload);
+            }
+        }
+    }
+
+    private void startPeriod(double seconds) {
+        periodStartSeconds = seconds;
+        lastEjectSeconds = Double.NaN;
+    }
+
+    private void recordEject(double seconds, long count) {
+        // The first value is where the counter starts, not an eject
+        boolean ejected = ejectCount >= 0 && count > ejectCount;
+        ejectCount = count;
+        if (!ejected || !enabled) {
+            return;
+        }
+
+        if (autonomous) {
+            autoEjects++;
+            return;
+        }
+        teleopEjects++;
+        // First cycle of the period runs from when it started
+        double cycleStart = Double.isNaN(lastEjectSeconds) ? periodStartSeconds : lastEjectSeconds;
+        teleopCycleSeconds.add(seconds - cycleStart);
+        lastEjectSeconds = seconds;
+    }
+
+    /**
+     * A move finished when the count steps. Its duration is the last move
+     * seconds value from the same loop, which may be logged just before or
+     * just after the count.
+     */
+    private void recordMoveCount(double seconds, long count) {
+        // The first value is where the counter starts, not a move
+        boolean moved = moveCount >= 0 && count > moveCount;
+        moveCount = count;
+        if (!moved) {
+            return;
+        }
+
+        resolvePendingMove();
+        if (seconds - lastMoveSecondsTimestamp <= kSameLoopSeconds) {
+            elevatorMoveSeconds.add(lastMoveSeconds);
+        } else {
+            pendingMoveTimestamp = seconds;
+        }
+    }
+
+    private void recordLastMoveSeconds(double seconds, double value) {
+        if (!Double.isNaN(pendingMoveTimestamp) && seconds - pendingMoveTimestamp <= kSameLoopSeconds) {
+            elevatorMoveSeconds.add(value);
+            pendingMoveTimestamp = Double.NaN;
+        } else {
+            // Belongs to a later move
+            resolvePendingMove();
+        }
+        lastMoveSeconds = value;
+        lastMoveSecondsTimestamp = seconds;
+    }
+
+    /** A duration equal to the one before isn't logged again, reuse it. */
+    private void resolvePendingMove() {
+        if (!Double.isNaN(pendingMoveTimestamp)) {
+            if (!Double.isNaN(lastMoveSeconds)) {
+                elevatorMoveSeconds.add(lastMoveSeconds);
+            }
+            pendingMoveTimestamp = Double.NaN;
+        }
+    }
+
+    /** Add the time the current accept rate has held while enabled. */
+    private void accumulateAcceptRate(double seconds) {
+        if (enabled && !Double.isNaN(acceptRate) && seconds > acceptRateSince) {
+            acceptRateIntegral += acceptRate * (seconds - acceptRateSince);
+            acceptRateSeconds += seconds - acceptRateSince;
+        }
+        acceptRateSince = seconds;
+    }
+
+    private MatchReport report() {
+        resolvePendingMove();
+        accumulateAcceptRate(lastTimestampSeconds);
+        String match = eventName.isEmpty() || matchNumber == 0
+                ? file.getFileName().toString()
+                : String.format("%s %s%d", eventName,
+                        kMatchTypes[(int) Math.max(0, Math.min(matchType, kMatchTypes.length - 1))], matchNumber);
+        return new MatchReport(match, autoEjects, teleopEjects, teleopCycleSeconds, overrunWarnings,
+                acceptRateSeconds > 0 ? acceptRateIntegral / acceptRateSeconds : Double.NaN, elevatorMoveSeconds,
+                homingSeconds);
+    }
+}
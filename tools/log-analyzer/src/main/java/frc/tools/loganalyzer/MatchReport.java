@@ -0,0 +1,77 @@
+package frc.tools.loganalyzer;
+
+import java.util.List;
+
+/**
+ * Numbers for one match.
+ *
+ * @param match               Event and match, or the file name outside FMS
+ * @param autoEjects          Coral scored in auto
+ * @param teleopEjects        Coral scored in teleop
+ * @param teleopCycleSeconds  Time from the previous score, or the start of
+ *                            teleop, to each teleop score
+ * @param overrunWarnings     Loop overrun warnings, rate limited by WPILib to
+ *                            one a second
+ * @param visionAcceptRate    Vision accept rate averaged over enabled time,
+ *                            NaN if no frames
+ * @param elevatorMoveSeconds Duration of each elevator move
+ * @param homingSeconds       Elevator homing time, NaN if it did not home
+ */
+public record MatchReport(
+        String match,
+        int autoEjects,
+        int teleopEjects,
+        List<Double> teleopCycleSeconds,
+        int overrunWarnings,
+        double visionAcceptRate,
+        List<Double> elevatorMoveSeconds,
+        double homingSeconds) {
+
+    static final String kHeader = String.format("%-28s %5s %6s %8s %8s %8s %7s %6s %8s %8s %7s",
+            "Match", "Auto", "Teleop", "Cycle50", "CycleAvg", "Overruns", "Vision", "Moves", "Move50", "Move90",
+            "Homing");
+
+    static final String kCsvHeader = "match,auto_ejects,teleop_ejects,cycle_p50_s,cycle_mean_s,overrun_warnings,"
+            + "vision_accept_rate,elevator_moves,move_p50_s,move_p90_s,homing_s";
+
+    String toRow() {
+        return String.format("%-28s %5d %6d %8s %8s %8d %7s %6d %8s %8s %7s",
+                match, autoEjects, teleopEjects,
+                format(percentile(teleopCycleSeconds, 50)), format(mean(teleopCycleSeconds)),
+                overrunWarnings, format(visionAcceptRate), elevatorMoveSeconds.size(),
+                format(percentile(elevatorMoveSeconds, 50)), format(percentile(elevatorMoveSeconds, 90)),
+                format(homingSeconds));
+    }
+
+    String toCsv() {
+        return String.join(",",
+                '"' + match.replace("\"", "\"\"") + '"',
+                Integer.toString(autoEjects),
+                Integer.toString(teleopEjects),
+                Double.toString(percentile(teleopCycleSeconds, 50)),
+                Double.toString(mean(teleopCycleSeconds)),
+                Integer.toString(overrunWarnings),
+                Double.toString(visionAcceptRate),
+                Integer.toString(elevatorMoveSeconds.size()),
+                Double.toString(percentile(elevatorMoveSeconds, 50)),
+                Double.toString(percentile(elevatorMoveSeconds, 90)),
+                Double.toString(homingSeconds));
+    }
+
+    static double percentile(List<Double> values, double percentile) {
+        if (values.isEmpty()) {
+            return Double.NaN;
+        }
+        double[] sorted = values.stream().mapToDouble(Double::doubleValue).sorted().toArray();
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    static double mean(List<Double> values) {
+        return values.stream().mapToDouble(Double::doubleValue).average().orElse(Double.NaN);
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "-" : String.format("%.2f", value);
+    }
+}
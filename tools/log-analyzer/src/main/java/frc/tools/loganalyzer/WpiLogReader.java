@@ -0,0 +1,143 @@
+package frc.tools.loganalyzer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the records of a WPILib .wpilog file from a memory mapped buffer,
+ * handing each payload over as a view into the mapping rather than a copy.
+ * Only what the analyzer needs is decoded: entry starts and data records.
+ * <p>
+ * Format, little endian: "WPILOG", version, extra header, then records. Each
+ * record starts with a byte giving the widths of the entry ID (1 - 4 bytes),
+ * payload size (1 - 4 bytes) and timestamp (1 - 8 bytes, microseconds) that
+ * follow it. Entry 0 is the control entry, whose start records name the
+ * other entries.
+ */
+public final class WpiLogReader {
+    private static final byte[] kMagic = "WPILOG".getBytes(StandardCharsets.US_ASCII);
+    private static final int kControlEntry = 0;
+    private static final int kControlStart = 0;
+
+    public interface RecordHandler {
+        void start(int entry, String name, String type);
+
+        /**
+         * @param payload Little endian view of the payload, only valid during
+         *                the call
+         */
+        void data(int entry, long timestampMicros, ByteBuffer payload);
+    }
+
+    private WpiLogReader() {
+    }
+
+    public static void read(Path file, RecordHandler handler) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Log too large to map: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.remaining() < 12) {
+            throw new IOException("Not a wpilog: " + file);
+        }
+        for (byte b : kMagic) {
+            if (buffer.get() != b) {
+                throw new IOException("Not a wpilog: " + file);
+            }
+        }
+        int version = Short.toUnsignedInt(buffer.getShort());
+        if (version < 0x0100) {
+            throw new IOException(String.format("Unsupported wpilog version %x: %s", version, file));
+        }
+        int extraHeaderLength = buffer.getInt();
+        buffer.position(buffer.position() + extraHeaderLength);
+
+        while (buffer.remaining() >= 4) {
+            int header = Byte.toUnsignedInt(buffer.get());
+            int entryLength = (header & 0x3) + 1;
+            int sizeLength = ((header >> 2) & 0x3) + 1;
+            int timestampLength = ((header >> 4) & 0x7) + 1;
+            if (buffer.remaining() < entryLength + sizeLength + timestampLength) {
+                break;
+            }
+
+            int entry = (int) readVariable(buffer, entryLength);
+            int size = (int) readVariable(buffer, sizeLength);
+            long timestamp = readVariable(buffer, timestampLength);
+            if (size < 0 || buffer.remaining() < size) {
+                // Log cut off mid record, e.g. power lost
+                break;
+            }
+
+            ByteBuffer payload = buffer.slice(buffer.position(), size).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.position(buffer.position() + size);
+            if (entry == kControlEntry) {
+                readControl(payload, handler);
+            } else {
+                handler.data(entry, timestamp, payload);
+            }
+        }
+    }
+
+    public static double getDouble(ByteBuffer payload) {
+        return payload.remaining() >= 8 ? payload.getDouble(0) : Double.NaN;
+    }
+
+    public static long getInteger(ByteBuffer payload) {
+        return payload.remaining() >= 8 ? payload.getLong(0) : 0;
+    }
+
+    public static boolean getBoolean(ByteBuffer payload) {
+        return payload.remaining() >= 1 && payload.get(0) != 0;
+    }
+
+    public static String getString(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(0, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void readControl(ByteBuffer payload, RecordHandler handler) {
+        // Finish and set metadata records are not needed
+        if (payload.remaining() < 1 || payload.get() != kControlStart || payload.remaining() < 8) {
+            return;
+        }
+        int entry = payload.getInt();
+        String name = readString(payload);
+        String type = readString(payload);
+        if (name != null && type != null) {
+            handler.start(entry, name, type);
+        }
+    }
+
+    private static String readString(ByteBuffer payload) {
+        if (payload.remaining() < 4) {
+            return null;
+        }
+        int length = payload.getInt();
+        if (length < 0 || payload.remaining() < length) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long readVariable(ByteBuffer buffer, int length) {
+        long value = 0;
+        for (int i = 0; i < length; i++) {
+            value |= (long) Byte.toUnsignedInt(buffer.get()) << (8 * i);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,108 @@
+package frc.tools.loganalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MatchAnalyzerTest {
+    private static final String kPrefix = "NT:/Robot/RobotContainer/";
+    private static final double kTolerance = 1e-9;
+
+    @TempDir
+    Path directory;
+
+    private final WpiLogWriter writer = new WpiLogWriter();
+    private final int enabled = writer.start("DS:enabled", "boolean");
+    private final int autonomous = writer.start("DS:autonomous", "boolean");
+    private final int console = writer.start("console", "string");
+    private final int ejectCount = writer.start(kPrefix + "End effector/Eject count", "int64");
+    private final int moveCount = writer.start(kPrefix + "Elevator/Move count", "int64");
+    private final int lastMoveSeconds = writer.start(kPrefix + "Elevator/Last move seconds", "double");
+    private final int acceptRate = writer.start(kPrefix + "Drivetrain/Vision/limelight/Accept rate", "double");
+
+    @Test
+    void reportsCyclesOverrunsAndAcceptRate() throws IOException {
+        writer.appendInteger(ejectCount, 0, 0)
+                .appendDouble(acceptRate, 0, 1.0)
+                // Auto from 1 to 16 s
+                .appendBoolean(autonomous, 1, true)
+                .appendBoolean(enabled, 1, true)
+                .appendInteger(ejectCount, 3, 1)
+                .appendBoolean(enabled, 16, false)
+                // Teleop from 17 to 40 s
+                .appendBoolean(autonomous, 17, false)
+                .appendBoolean(enabled, 17, true)
+                .appendInteger(ejectCount, 21, 2)
+                .appendString(console, 22, "Warning at edu.wpi.first.wpilibj.IterativeRobotBase\n"
+                        + "Loop time of 0.02s overrun\nLoop time of 0.02s overrun\n")
+                .appendString(console, 23, "Auto selected: Center")
+                .appendInteger(ejectCount, 27, 3)
+                .appendString(console, 28, "Loop time of 0.02s overrun")
+                .appendInteger(ejectCount, 30, 4)
+                .appendDouble(acceptRate, 31, 0.5)
+                .appendBoolean(enabled, 40, false)
+                // Disabled time doesn't count toward the accept rate
+                .appendDouble(acceptRate, 41, 0.0)
+                // Power lost mid write
+                .appendTruncated(console, 42, "Loop time of 0.02s overrun".getBytes(StandardCharsets.UTF_8), 10);
+
+        MatchReport report = analyze();
+
+        assertEquals("match.wpilog", report.match());
+        assertEquals(1, report.autoEjects());
+        assertEquals(3, report.teleopEjects());
+        // The first cycle runs from the start of teleop
+        assertEquals(List.of(4.0, 6.0, 3.0), report.teleopCycleSeconds());
+        assertEquals(3, report.overrunWarnings());
+        // 1.0 for 15 s of auto and 14 s of teleop, then 0.5 for 9 s
+        assertEquals((15 + 14 + 0.5 * 9) / 38, report.visionAcceptRate(), kTolerance);
+    }
+
+    @Test
+    void pairsMoveDurationsLoggedEitherSideOfTheCount() throws IOException {
+        writer.appendInteger(moveCount, 0, 0)
+                .appendDouble(lastMoveSeconds, 0, 0)
+                .appendBoolean(enabled, 1, true)
+                // Duration logged before the count
+                .appendDouble(lastMoveSeconds, 2, 0.8)
+                .appendInteger(moveCount, 2.000005, 1)
+                // Count logged before the duration
+                .appendInteger(moveCount, 3, 2)
+                .appendDouble(lastMoveSeconds, 3.00002, 0.6)
+                // Same duration as the move before, so it isn't logged again
+                .appendInteger(moveCount, 4, 3)
+                .appendDouble(lastMoveSeconds, 5, 0.7)
+                .appendInteger(moveCount, 5, 4)
+                // The last record of the log, still waiting on its duration
+                .appendInteger(moveCount, 6, 5)
+                .appendBoolean(enabled, 7, false);
+
+        MatchReport report = analyze();
+
+        assertEquals(List.of(0.8, 0.6, 0.6, 0.7, 0.7), report.elevatorMoveSeconds());
+    }
+
+    @Test
+    void namesTheMatchFromFmsInfo() throws IOException {
+        int eventName = writer.start("NT:/FMSInfo/EventName", "string");
+        int matchType = writer.start("NT:/FMSInfo/MatchType", "int64");
+        int matchNumber = writer.start("NT:/FMSInfo/MatchNumber", "int64");
+        writer.appendString(eventName, 0, "CAFR")
+                .appendInteger(matchType, 0, 2)
+                .appendInteger(matchNumber, 0, 12);
+
+        assertEquals("CAFR Q12", analyze().match());
+    }
+
+    private MatchReport analyze() throws IOException {
+        Path file = directory.resolve("match.wpilog");
+        writer.write(file);
+        return MatchAnalyzer.analyze(file);
+    }
+}
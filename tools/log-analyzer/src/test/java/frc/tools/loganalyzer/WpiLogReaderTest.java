@@ -0,0 +1,131 @@
+package frc.tools.loganalyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WpiLogReaderTest {
+    @TempDir
+    Path directory;
+
+    /** Every start and data record, as text. */
+    private static class Recorder implements WpiLogReader.RecordHandler {
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void start(int entry, String name, String type) {
+            records.add(String.format("start %d %s %s", entry, name, type));
+        }
+
+        @Override
+        public void data(int entry, long timestampMicros, ByteBuffer payload) {
+            records.add(String.format("data %d %d %d bytes", entry, timestampMicros, payload.remaining()));
+        }
+    }
+
+    @Test
+    void readsEveryHeaderWidth() throws IOException {
+        WpiLogWriter writer = new WpiLogWriter();
+        int small = writer.start("small", "double");
+        // Two byte entry ID, five byte timestamp and two byte size
+        int large = writer.start(300, "large", "raw");
+        writer.appendDouble(small, 0.5, 1.25);
+        writer.append(large, 5000.0, new byte[1000]);
+        Path file = write(writer);
+
+        Recorder recorder = new Recorder();
+        WpiLogReader.read(file, recorder);
+
+        assertEquals(List.of(
+                "start 1 small double",
+                "start 300 large raw",
+                "data 1 500000 8 bytes",
+                "data 300 5000000000 1000 bytes"), recorder.records);
+    }
+
+    @Test
+    void decodesValues() throws IOException {
+        WpiLogWriter writer = new WpiLogWriter();
+        writer.start("boolean", "boolean");
+        writer.start("int64", "int64");
+        writer.start("double", "double");
+        writer.start("string", "string");
+        writer.appendBoolean(1, 1, true)
+                .appendInteger(2, 1, -7)
+                .appendDouble(3, 1, 0.375)
+                .appendString(4, 1, "Loop time of 0.02s overrun");
+        Path file = write(writer);
+
+        List<Object> values = new ArrayList<>();
+        WpiLogReader.read(file, new WpiLogReader.RecordHandler() {
+            @Override
+            public void start(int entry, String name, String type) {
+            }
+
+            @Override
+            public void data(int entry, long timestampMicros, ByteBuffer payload) {
+                switch (entry) {
+                    case 1 -> values.add(WpiLogReader.getBoolean(payload));
+                    case 2 -> values.add(WpiLogReader.getInteger(payload));
+                    case 3 -> values.add(WpiLogReader.getDouble(payload));
+                    default -> values.add(WpiLogReader.getString(payload));
+                }
+            }
+        });
+
+        assertEquals(List.of(true, -7L, 0.375, "Loop time of 0.02s overrun"), values);
+    }
+
+    @Test
+    void stopsAtATruncatedRecord() throws IOException {
+        WpiLogWriter writer = new WpiLogWriter();
+        int entry = writer.start("value", "double");
+        writer.appendDouble(entry, 1, 1.0)
+                .appendTruncated(entry, 2, new byte[8], 3);
+        Path file = write(writer);
+
+        Recorder recorder = new Recorder();
+        WpiLogReader.read(file, recorder);
+
+        assertEquals(List.of("start 1 value double", "data 1 1000000 8 bytes"), recorder.records);
+    }
+
+    @Test
+    void stopsAtATruncatedHeader() throws IOException {
+        WpiLogWriter writer = new WpiLogWriter();
+        int entry = writer.start("value", "double");
+        writer.appendDouble(entry, 1, 1.0);
+        Path file = write(writer);
+        // Header byte for a four byte entry ID, size and timestamp, then the entry ID alone
+        Files.write(file, new byte[] { 0x3F, 1, 0, 0, 0 }, StandardOpenOption.APPEND);
+
+        Recorder recorder = new Recorder();
+        WpiLogReader.read(file, recorder);
+
+        assertEquals(2, recorder.records.size());
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("notes.txt");
+        Files.writeString(file, "Not a log, just some text");
+
+        assertThrows(IOException.class, () -> WpiLogReader.read(file, new Recorder()));
+    }
+
+    private Path write(WpiLogWriter writer) throws IOException {
+        Path file = directory.resolve("test.wpilog");
+        writer.write(file);
+        return file;
+    }
+}
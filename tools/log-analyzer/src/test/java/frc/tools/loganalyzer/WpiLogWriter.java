@@ -0,0 +1,105 @@
+package frc.tools.loganalyzer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes .wpilog files for tests, with the same variable width record headers
+ * WPILib's DataLogWriter uses. Only entry starts and data records.
+ */
+class WpiLogWriter {
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+    private int nextEntry = 1;
+
+    WpiLogWriter() {
+        output.writeBytes("WPILOG".getBytes(StandardCharsets.US_ASCII));
+        output.writeBytes(littleEndian(2).putShort((short) 0x0100).array());
+        output.writeBytes(littleEndian(4).putInt(0).array());
+    }
+
+    /** Start an entry at time 0 and return its ID. */
+    int start(String name, String type) {
+        return start(nextEntry++, name, type);
+    }
+
+    int start(int entry, String name, String type) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = littleEndian(1 + 4 + 4 + nameBytes.length + 4 + typeBytes.length + 4)
+                .put((byte) 0)
+                .putInt(entry)
+                .putInt(nameBytes.length).put(nameBytes)
+                .putInt(typeBytes.length).put(typeBytes)
+                .putInt(0);
+        record(0, 0, payload.array(), payload.capacity());
+        return entry;
+    }
+
+    WpiLogWriter appendBoolean(int entry, double seconds, boolean value) {
+        return append(entry, seconds, new byte[] { (byte) (value ? 1 : 0) });
+    }
+
+    WpiLogWriter appendInteger(int entry, double seconds, long value) {
+        return append(entry, seconds, littleEndian(8).putLong(value).array());
+    }
+
+    WpiLogWriter appendDouble(int entry, double seconds, double value) {
+        return append(entry, seconds, littleEndian(8).putDouble(value).array());
+    }
+
+    WpiLogWriter appendString(int entry, double seconds, String value) {
+        return append(entry, seconds, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    WpiLogWriter append(int entry, double seconds, byte[] payload) {
+        record(entry, Math.round(seconds * 1e6), payload, payload.length);
+        return this;
+    }
+
+    /**
+     * Write a record whose payload is cut off after some bytes, like a log
+     * that lost power mid write.
+     */
+    WpiLogWriter appendTruncated(int entry, double seconds, byte[] payload, int writtenBytes) {
+        record(entry, Math.round(seconds * 1e6), payload, writtenBytes);
+        return this;
+    }
+
+    void write(Path file) throws IOException {
+        Files.write(file, output.toByteArray());
+    }
+
+    private void record(int entry, long timestampMicros, byte[] payload, int writtenBytes) {
+        int entryLength = width(entry, 4);
+        int sizeLength = width(payload.length, 4);
+        int timestampLength = width(timestampMicros, 8);
+        output.write((entryLength - 1) | (sizeLength - 1) << 2 | (timestampLength - 1) << 4);
+        writeVariable(entry, entryLength);
+        writeVariable(payload.length, sizeLength);
+        writeVariable(timestampMicros, timestampLength);
+        output.write(payload, 0, writtenBytes);
+    }
+
+    private void writeVariable(long value, int length) {
+        for (int i = 0; i < length; i++) {
+            output.write((int) (value >>> (8 * i)) & 0xFF);
+        }
+    }
+
+    private static int width(long value, int maxLength) {
+        int length = 1;
+        while (length < maxLength && value >>> (8 * length) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static ByteBuffer littleEndian(int capacity) {
+        return ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
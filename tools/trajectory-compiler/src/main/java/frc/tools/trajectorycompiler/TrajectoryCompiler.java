@@ -0,0 +1,190 @@
+package frc.tools.trajectorycompiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pathplanner.lib.config.ModuleConfig;
+import com.pathplanner.lib.config.RobotConfig;
+import com.pathplanner.lib.path.ConstraintsZone;
+import com.pathplanner.lib.path.GoalEndState;
+import com.pathplanner.lib.path.IdealStartingState;
+import com.pathplanner.lib.path.PathConstraints;
+import com.pathplanner.lib.path.PathPlannerPath;
+import com.pathplanner.lib.path.PointTowardsZone;
+import com.pathplanner.lib.path.RotationTarget;
+import com.pathplanner.lib.path.Waypoint;
+import com.pathplanner.lib.trajectory.PathPlannerTrajectory;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.system.plant.DCMotor;
+import edu.wpi.first.math.util.Units;
+import frc.robot.util.PrecomputedTrajectory;
+
+/**
+ * Generates every PathPlanner path's trajectory at build time into the
+ * {@link PrecomputedTrajectory} format. Run with
+ * {@code ./gradlew :trajectory-compiler:generateTrajectories}, which also runs
+ * before every robot jar so deploys and simulation always have current
+ * trajectories.
+ * <p>
+ * PathPlanner's own file loaders find the deploy directory through the HAL,
+ * which is not loaded in a build, so the path files and robot settings are
+ * read here and handed to PathPlanner's constructors. Paths with event
+ * markers are skipped and left to PathPlanner, since only its path following
+ * command triggers them.
+ */
+public class TrajectoryCompiler {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TrajectoryCompiler <pathplanner directory> <output directory>");
+            System.exit(1);
+        }
+
+        Path pathplannerDirectory = Path.of(args[0]);
+        Path outputDirectory = Path.of(args[1]);
+        RobotConfig config = readRobotConfig(
+                new ObjectMapper().readTree(pathplannerDirectory.resolve("settings.json").toFile()));
+
+        Files.createDirectories(outputDirectory);
+        try (Stream<Path> stale = Files.list(outputDirectory)) {
+            for (Path file : stale.filter(file -> file.toString().endsWith(PrecomputedTrajectory.kExtension))
+                    .toList()) {
+                Files.delete(file);
+            }
+        }
+
+        List<Path> pathFiles;
+        try (Stream<Path> files = Files.list(pathplannerDirectory.resolve("paths"))) {
+            pathFiles = files.filter(file -> file.toString().endsWith(".path")).sorted().toList();
+        }
+
+        int generated = 0;
+        for (Path pathFile : pathFiles) {
+            String name = pathFile.getFileName().toString().replaceFirst("\\.path$", "");
+            JsonNode json = new ObjectMapper().readTree(pathFile.toFile());
+            if (json.path("eventMarkers").size() > 0) {
+                System.out.printf("%-30s skipped, has event markers%n", name);
+                continue;
+            }
+
+            Optional<PathPlannerTrajectory> trajectory = readPath(json).getIdealTrajectory(config);
+            if (trajectory.isEmpty()) {
+                System.out.printf("%-30s skipped, no ideal starting state%n", name);
+                continue;
+            }
+
+            Path output = outputDirectory.resolve(name + PrecomputedTrajectory.kExtension);
+            PrecomputedTrajectory.write(output, PrecomputedTrajectory.checksum(pathplannerDirectory, name),
+                    trajectory.get(), config.numModules);
+            System.out.printf("%-30s %5d states %6.2f s %7d bytes%n", name, trajectory.get().getStates().size(),
+                    trajectory.get().getTotalTimeSeconds(), Files.size(output));
+            generated++;
+        }
+        System.out.printf("Generated %d of %d trajectories into %s%n", generated, pathFiles.size(),
+                outputDirectory);
+    }
+
+    /** Same settings PathPlanner reads with RobotConfig.fromGUISettings(). */
+    private static RobotConfig readRobotConfig(JsonNode settings) {
+        DCMotor motor = switch (settings.get("driveMotorType").asText()) {
+            case "krakenX60" -> DCMotor.getKrakenX60(1);
+            case "krakenX60FOC" -> DCMotor.getKrakenX60Foc(1);
+            case "falcon500" -> DCMotor.getFalcon500(1);
+            case "falcon500FOC" -> DCMotor.getFalcon500Foc(1);
+            case "vortex" -> DCMotor.getNeoVortex(1);
+            case "NEO" -> DCMotor.getNEO(1);
+            case "CIM" -> DCMotor.getCIM(1);
+            case "miniCIM" -> DCMotor.getMiniCIM(1);
+            default -> throw new IllegalArgumentException(
+                    "Unknown drive motor type " + settings.get("driveMotorType").asText());
+        };
+
+        ModuleConfig moduleConfig = new ModuleConfig(
+                settings.get("driveWheelRadius").asDouble(),
+                settings.get("maxDriveSpeed").asDouble(),
+                settings.get("wheelCOF").asDouble(),
+                motor,
+                settings.get("driveGearing").asDouble(),
+                settings.get("driveCurrentLimit").asDouble(),
+                1);
+
+        return new RobotConfig(
+                settings.get("robotMass").asDouble(),
+                settings.get("robotMOI").asDouble(),
+                moduleConfig,
+                translation(settings, "flModule"),
+                translation(settings, "frModule"),
+                translation(settings, "blModule"),
+                translation(settings, "brModule"));
+    }
+
+    private static PathPlannerPath readPath(JsonNode json) {
+        List<Waypoint> waypoints = new ArrayList<>();
+        for (JsonNode waypoint : json.get("waypoints")) {
+            waypoints.add(new Waypoint(point(waypoint.get("prevControl")), point(waypoint.get("anchor")),
+                    point(waypoint.get("nextControl"))));
+        }
+
+        List<RotationTarget> rotationTargets = new ArrayList<>();
+        for (JsonNode target : json.path("rotationTargets")) {
+            rotationTargets.add(new RotationTarget(target.get("waypointRelativePos").asDouble(),
+                    Rotation2d.fromDegrees(target.get("rotationDegrees").asDouble())));
+        }
+
+        List<PointTowardsZone> pointTowardsZones = new ArrayList<>();
+        for (JsonNode zone : json.path("pointTowardsZones")) {
+            pointTowardsZones.add(new PointTowardsZone(zone.path("name").asText(), point(zone.get("fieldPosition")),
+                    Rotation2d.fromDegrees(zone.path("rotationOffset").asDouble()),
+                    zone.get("minWaypointRelativePos").asDouble(), zone.get("maxWaypointRelativePos").asDouble()));
+        }
+
+        List<ConstraintsZone> constraintZones = new ArrayList<>();
+        for (JsonNode zone : json.path("constraintZones")) {
+            constraintZones.add(new ConstraintsZone(zone.get("minWaypointRelativePos").asDouble(),
+                    zone.get("maxWaypointRelativePos").asDouble(), constraints(zone.get("constraints"))));
+        }
+
+        JsonNode goal = json.get("goalEndState");
+        JsonNode start = json.get("idealStartingState");
+        return new PathPlannerPath(
+                waypoints,
+                rotationTargets,
+                pointTowardsZones,
+                constraintZones,
+                List.of(),
+                constraints(json.get("globalConstraints")),
+                start == null || start.isNull() ? null
+                        : new IdealStartingState(start.get("velocity").asDouble(),
+                                Rotation2d.fromDegrees(start.get("rotation").asDouble())),
+                new GoalEndState(goal.get("velocity").asDouble(),
+                        Rotation2d.fromDegrees(goal.get("rotation").asDouble())),
+                json.path("reversed").asBoolean(false));
+    }
+
+    private static PathConstraints constraints(JsonNode json) {
+        return new PathConstraints(
+                json.get("maxVelocity").asDouble(),
+                json.get("maxAcceleration").asDouble(),
+                Units.degreesToRadians(json.get("maxAngularVelocity").asDouble()),
+                Units.degreesToRadians(json.get("maxAngularAcceleration").asDouble()),
+                json.path("nominalVoltage").asDouble(12.0),
+                json.path("unlimited").asBoolean(false));
+    }
+
+    private static Translation2d point(JsonNode json) {
+        return json == null || json.isNull() ? null
+                : new Translation2d(json.get("x").asDouble(), json.get("y").asDouble());
+    }
+
+    private static Translation2d translation(JsonNode settings, String prefix) {
+        return new Translation2d(settings.get(prefix + "X").asDouble(), settings.get(prefix + "Y").asDouble());
+    }
+}
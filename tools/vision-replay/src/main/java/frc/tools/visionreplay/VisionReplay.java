@@ -0,0 +1,210 @@
+package frc.tools.visionreplay;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
+import edu.wpi.first.math.kinematics.SwerveModulePosition;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.PoseEstimate;
+import frc.robot.LimelightHelpers.RawFiducial;
+import frc.robot.util.VisionFusionStrategy;
+import frc.robot.util.VisionRecorder;
+
+/**
+ * Feeds a {@link VisionRecorder} log back through a pose estimator as fast as
+ * it can be read, once per {@link VisionFusionStrategy}, and reports how each
+ * strategy moved the pose. Run with
+ * {@code ./gradlew :vision-replay:run --args="path/to/file.vlog [strategy]"}.
+ * <p>
+ * This is not the robot's estimator. The drivetrain fuses in Phoenix's native
+ * swerve estimator, which only runs against real or simulated devices, so the
+ * replay uses WPILib's SwerveDrivePoseEstimator with Phoenix's default
+ * standard deviations, which the drivetrain doesn't change. Which frames are
+ * used and how much they're trusted come from the same strategy code as the
+ * robot, but Phoenix's update is its own, so compare strategies against each
+ * other rather than expecting the replayed pose to match the logged one.
+ * <p>
+ * Pose resets on the robot are not in the log, the replay starts from the
+ * first recorded pose. Logs from simulation carry the true pose, and the
+ * replay also reports the error against it.
+ */
+public class VisionReplay {
+    // Phoenix swerve defaults, TunerConstants doesn't override them
+    private static final Matrix<N3, N1> kStateStdDevs = VecBuilder.fill(0.1, 0.1, 0.1);
+    private static final Matrix<N3, N1> kVisionStdDevs = VecBuilder.fill(0.9, 0.9, 0.9);
+
+    private record Odometry(double timestamp, Rotation2d rawHeading, double omega, Pose2d pose,
+            SwerveModulePosition[] positions) {
+    }
+
+    private record Vision(double timestamp, double omega, PoseEstimate estimate) {
+    }
+
+    private record GroundTruth(double timestamp, Pose2d pose) {
+    }
+
+    private record Log(Translation2d[] moduleLocations, List<Object> records) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args[0].isEmpty()) {
+            System.err.println("Usage: VisionReplay <file.vlog> [strategy]");
+            System.exit(1);
+        }
+
+        Log log = read(args[0]);
+        List<VisionFusionStrategy> strategies = args.length > 1 && !args[1].isEmpty()
+                ? List.of(VisionFusionStrategy.valueOf(args[1]))
+                : List.of(VisionFusionStrategy.values());
+
+        System.out.printf("%-26s %8s %8s %10s %10s %10s %10s%n",
+                "Strategy", "Frames", "Accepted", "Mean jump", "Max jump", "RMS error", "Max error");
+        for (VisionFusionStrategy strategy : strategies) {
+            replay(log, strategy);
+        }
+    }
+
+    private static void replay(Log log, VisionFusionStrategy strategy) {
+        SwerveDriveKinematics kinematics = new SwerveDriveKinematics(log.moduleLocations());
+        SwerveDrivePoseEstimator estimator = null;
+
+        int frames = 0;
+        int accepted = 0;
+        double jumpSum = 0;
+        double maxJump = 0;
+        int truthSamples = 0;
+        double squaredErrorSum = 0;
+        double maxError = 0;
+
+        for (Object record : log.records()) {
+            if (record instanceof Odometry odometry) {
+                if (estimator == null) {
+                    estimator = new SwerveDrivePoseEstimator(kinematics, odometry.rawHeading(), odometry.positions(),
+                            odometry.pose(), kStateStdDevs, kVisionStdDevs);
+                } else {
+                    estimator.updateWithTime(odometry.timestamp(), odometry.rawHeading(), odometry.positions());
+                }
+            } else if (record instanceof Vision vision && estimator != null) {
+                frames++;
+                Optional<Matrix<N3, N1>> stdDevs = strategy.evaluate(vision.estimate(), vision.omega());
+                if (stdDevs.isPresent()) {
+                    accepted++;
+                    Pose2d before = estimator.getEstimatedPosition();
+                    estimator.addVisionMeasurement(vision.estimate().pose, vision.timestamp(), stdDevs.get());
+                    double jump = estimator.getEstimatedPosition().getTranslation()
+                            .getDistance(before.getTranslation());
+                    jumpSum += jump;
+                    maxJump = Math.max(maxJump, jump);
+                }
+            } else if (record instanceof GroundTruth truth && estimator != null) {
+                double error = estimator.getEstimatedPosition().getTranslation()
+                        .getDistance(truth.pose().getTranslation());
+                truthSamples++;
+                squaredErrorSum += error * error;
+                maxError = Math.max(maxError, error);
+            }
+        }
+
+        System.out.printf("%-26s %8d %8d %10.4f %10.4f %10s %10s%n",
+                strategy, frames, accepted,
+                accepted > 0 ? jumpSum / accepted : 0, maxJump,
+                truthSamples > 0 ? String.format("%.4f", Math.sqrt(squaredErrorSum / truthSamples)) : "-",
+                truthSamples > 0 ? String.format("%.4f", maxError) : "-");
+    }
+
+    private static Log read(String path) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            if (input.readInt() != VisionRecorder.kMagic) {
+                throw new IOException("Not a vision log: " + path);
+            }
+            int version = input.readInt();
+            if (version != VisionRecorder.kVersion) {
+                throw new IOException("Unsupported vision log version " + version);
+            }
+
+            Translation2d[] moduleLocations = new Translation2d[input.readUnsignedByte()];
+            for (int i = 0; i < moduleLocations.length; i++) {
+                moduleLocations[i] = new Translation2d(input.readDouble(), input.readDouble());
+            }
+
+            List<Object> records = new ArrayList<>();
+            while (true) {
+                int type;
+                try {
+                    type = input.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+
+                try {
+                    switch (type) {
+                        case VisionRecorder.kOdometryRecord -> records.add(readOdometry(input));
+                        case VisionRecorder.kVisionRecord -> records.add(readVision(input));
+                        case VisionRecorder.kGroundTruthRecord -> records.add(
+                                new GroundTruth(input.readDouble(), readPose(input)));
+                        default -> throw new IOException("Unknown record type " + type);
+                    }
+                } catch (EOFException e) {
+                    // Log cut off mid record, e.g. power lost
+                    break;
+                }
+            }
+
+            return new Log(moduleLocations, records);
+        }
+    }
+
+    private static Odometry readOdometry(DataInputStream input) throws IOException {
+        double timestamp = input.readDouble();
+        Rotation2d rawHeading = Rotation2d.fromRadians(input.readDouble());
+        double omega = input.readDouble();
+        Pose2d pose = readPose(input);
+        SwerveModulePosition[] positions = new SwerveModulePosition[input.readUnsignedByte()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = new SwerveModulePosition(input.readDouble(), Rotation2d.fromRadians(input.readDouble()));
+        }
+        return new Odometry(timestamp, rawHeading, omega, pose, positions);
+    }
+
+    private static Vision readVision(DataInputStream input) throws IOException {
+        double timestamp = input.readDouble();
+        double omega = input.readDouble();
+        boolean megaTag2 = input.readByte() != 0;
+        double[] poseArray = new double[input.readUnsignedShort()];
+        for (int i = 0; i < poseArray.length; i++) {
+            poseArray[i] = input.readDouble();
+        }
+        return new Vision(timestamp, omega, toPoseEstimate(poseArray, timestamp, megaTag2));
+    }
+
+    private static Pose2d readPose(DataInputStream input) throws IOException {
+        return new Pose2d(input.readDouble(), input.readDouble(), Rotation2d.fromRadians(input.readDouble()));
+    }
+
+    private static PoseEstimate toPoseEstimate(double[] poseArray, double timestamp, boolean megaTag2) {
+        int tagCount = (int) poseArray[7];
+        RawFiducial[] fiducials = new RawFiducial[Math.max(0, (poseArray.length - 11) / 7)];
+        for (int i = 0; i < fiducials.length; i++) {
+            int index = 11 + i * 7;
+            fiducials[i] = new RawFiducial((int) poseArray[index], poseArray[index + 1], poseArray[index + 2],
+                    poseArray[index + 3], poseArray[index + 4], poseArray[index + 5], poseArray[index + 6]);
+        }
+        return new PoseEstimate(LimelightHelpers.toPose2D(poseArray), timestamp, poseArray[6], tagCount,
+                poseArray[8], poseArray[9], poseArray[10], fiducials, megaTag2);
+    }
+}